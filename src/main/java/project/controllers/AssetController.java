@@ -0,0 +1,152 @@
+package project.controllers;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Controller;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.servlet.HandlerMapping;
+import project.services.assets.Asset;
+import project.services.assets.AssetService;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Раздача загрузок и собранного фронтенда: ETag, Cache-Control: immutable для имён с хэшем,
+ * Range-запросы и передача файла без копирования в heap (sendfile Tomcat или FileChannel.transferTo).
+ * Загрузки из удалённого хранилища отдаются перенаправлением
+ */
+@Controller
+@RequiredArgsConstructor
+public class AssetController {
+
+    private static final Pattern RANGE = Pattern.compile("^bytes=(\\d*)-(\\d*)$");
+
+    private static final String IMMUTABLE = "public, max-age=31536000, immutable";
+
+    private static final String REVALIDATE = "no-cache";
+
+    private final AssetService assetService;
+
+    private final AntPathMatcher pathMatcher = new AntPathMatcher();
+
+    @GetMapping("/${upload.path}**")
+    public void upload(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        serve(assetService.findUpload(pathWithinPattern(request)), false, request, response);
+    }
+
+    @GetMapping({"/js/**", "/css/**", "/fonts/**", "/img/**"})
+    public void bundle(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        String path = ((String) request.getAttribute(HandlerMapping.PATH_WITHIN_HANDLER_MAPPING_ATTRIBUTE)).substring(1);
+        serve(assetService.findBundle(path, request.getHeader(HttpHeaders.ACCEPT_ENCODING)), true, request, response);
+    }
+
+    private void serve(Asset asset, boolean negotiated, HttpServletRequest request, HttpServletResponse response)
+            throws IOException {
+        if (asset == null) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+
+        response.setHeader(HttpHeaders.CACHE_CONTROL, asset.isImmutable() ? IMMUTABLE : REVALIDATE);
+        if (asset.getFile() == null) {
+            response.sendRedirect(asset.getRedirectUrl());
+            return;
+        }
+
+        response.setHeader(HttpHeaders.ETAG, asset.getEtag());
+        if (negotiated) {
+            response.setHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        }
+
+        if (matchesEtag(request.getHeader(HttpHeaders.IF_NONE_MATCH), asset.getEtag())) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+
+        response.setContentType(asset.getContentType().toString());
+        if (asset.getContentEncoding() != null) {
+            response.setHeader(HttpHeaders.CONTENT_ENCODING, asset.getContentEncoding());
+        } else {
+            response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+        }
+
+        long length = asset.getFile().length();
+        long start = 0;
+        long end = length;
+
+        String range = request.getHeader(HttpHeaders.RANGE);
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        if (range != null && asset.getContentEncoding() == null && (ifRange == null || ifRange.equals(asset.getEtag()))) {
+            Matcher matcher = RANGE.matcher(range.trim());
+            // несколько диапазонов не поддерживаем - по RFC 7233 можно отдать весь файл
+            if (matcher.matches() && !(matcher.group(1).isEmpty() && matcher.group(2).isEmpty())) {
+                if (matcher.group(1).isEmpty()) {
+                    start = Math.max(0, length - Long.parseLong(matcher.group(2)));
+                } else {
+                    start = Long.parseLong(matcher.group(1));
+                    if (!matcher.group(2).isEmpty()) {
+                        end = Math.min(length, Long.parseLong(matcher.group(2)) + 1);
+                    }
+                }
+
+                if (start >= length || start >= end) {
+                    response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + length);
+                    response.sendError(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+                    return;
+                }
+
+                response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + (end - 1) + "/" + length);
+            }
+        }
+
+        response.setContentLengthLong(end - start);
+        if ("HEAD".equals(request.getMethod())) {
+            return;
+        }
+
+        if (Boolean.TRUE.equals(request.getAttribute("org.apache.tomcat.sendfile.support"))) {
+            request.setAttribute("org.apache.tomcat.sendfile.filename", asset.getFile().getAbsolutePath());
+            request.setAttribute("org.apache.tomcat.sendfile.start", start);
+            request.setAttribute("org.apache.tomcat.sendfile.end", end);
+            return;
+        }
+
+        try (FileChannel channel = FileChannel.open(asset.getFile().toPath(), StandardOpenOption.READ)) {
+            WritableByteChannel out = Channels.newChannel(response.getOutputStream());
+            long position = start;
+            while (position < end) {
+                position += channel.transferTo(position, end - position, out);
+            }
+        }
+    }
+
+    private boolean matchesEtag(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        String strongEtag = etag.replaceFirst("^W/", "");
+        for (String candidate : ifNoneMatch.split(",")) {
+            String value = candidate.trim();
+            if (value.equals("*") || value.replaceFirst("^W/", "").equals(strongEtag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private String pathWithinPattern(HttpServletRequest request) {
+        String pattern = (String) request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        String path = (String) request.getAttribute(HandlerMapping.PATH_WITHIN_HANDLER_MAPPING_ATTRIBUTE);
+        return pathMatcher.extractPathWithinPattern(pattern, path);
+    }
+}
@@ -0,0 +1,149 @@
+package project.controllers;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import org.springframework.util.DigestUtils;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+import project.services.AuthService;
+import project.services.ResponseCacheService;
+import project.services.ResponseCacheService.CachedResponse;
+import project.services.ResponseCacheService.Group;
+import project.services.ResponseCacheService.Key;
+import project.services.ViewCountService;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Отдаёт анонимным пользователям закэшированные ответы публичных GET-эндпоинтов
+ * с ETag/Last-Modified и ответом 304 на условные запросы
+ */
+@Component
+@RequiredArgsConstructor
+public class ResponseCacheFilter extends OncePerRequestFilter {
+
+    private static final Pattern POST_PATH = Pattern.compile("^/api/post/(\\d+)$");
+
+    private final ResponseCacheService responseCacheService;
+
+    private final AuthService authService;
+
+    private final ViewCountService viewCountService;
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !"GET".equals(request.getMethod()) || getGroup(request.getRequestURI()) == null;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        if (authService.checkAuthorization()) {
+            chain.doFilter(request, response);
+            return;
+        }
+
+        String path = request.getRequestURI();
+        Matcher postMatcher = POST_PATH.matcher(path);
+        Integer postId = postMatcher.matches() ? Integer.valueOf(postMatcher.group(1)) : null;
+        String mode = "/api/post".equals(path) ? request.getParameter("mode") : null;
+        Key key = new Key(getGroup(path), postId, mode, normalize(request));
+
+        CachedResponse cached = responseCacheService.get(key);
+        if (cached != null) {
+            if (postId != null) {
+                viewCountService.registerView(postId);
+            }
+            writeCached(cached, request, response);
+            return;
+        }
+
+        ContentCachingResponseWrapper wrapper = new ContentCachingResponseWrapper(response);
+        chain.doFilter(request, wrapper);
+
+        if (wrapper.getStatus() == HttpServletResponse.SC_OK && !wrapper.getHeaderNames().contains(HttpHeaders.SET_COOKIE)) {
+            byte[] body = wrapper.getContentAsByteArray();
+            cached = new CachedResponse(
+                    wrapper.getContentType(),
+                    body,
+                    "\"" + DigestUtils.md5DigestAsHex(body) + "\"",
+                    System.currentTimeMillis() / 1000 * 1000
+            );
+            responseCacheService.put(key, cached);
+            setValidators(cached, wrapper);
+        }
+        wrapper.copyBodyToResponse();
+    }
+
+    private void writeCached(CachedResponse cached, HttpServletRequest request, HttpServletResponse response)
+            throws IOException {
+        setValidators(cached, response);
+
+        String ifNoneMatch = request.getHeader(HttpHeaders.IF_NONE_MATCH);
+        boolean notModified = ifNoneMatch != null
+                ? Arrays.stream(ifNoneMatch.split(",")).anyMatch(etag -> etag.trim().equals(cached.getEtag()))
+                : request.getDateHeader(HttpHeaders.IF_MODIFIED_SINCE) >= cached.getLastModified();
+        if (notModified) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+
+        response.setContentType(cached.getContentType());
+        response.setContentLength(cached.getBody().length);
+        response.getOutputStream().write(cached.getBody());
+    }
+
+    private void setValidators(CachedResponse cached, HttpServletResponse response) {
+        response.setHeader(HttpHeaders.ETAG, cached.getEtag());
+        response.setDateHeader(HttpHeaders.LAST_MODIFIED, cached.getLastModified());
+        response.setHeader(HttpHeaders.CACHE_CONTROL, "no-cache");
+    }
+
+    private String normalize(HttpServletRequest request) {
+        StringBuilder uri = new StringBuilder(request.getRequestURI());
+        Map<String, String[]> params = new TreeMap<>(request.getParameterMap());
+        char separator = '?';
+        for (Map.Entry<String, String[]> param : params.entrySet()) {
+            String[] values = param.getValue().clone();
+            Arrays.sort(values);
+            for (String value : values) {
+                uri.append(separator).append(param.getKey()).append('=').append(value);
+                separator = '&';
+            }
+        }
+        return uri.toString();
+    }
+
+    private Group getGroup(String path) {
+        if (POST_PATH.matcher(path).matches()) {
+            return Group.POST;
+        }
+        switch (path) {
+            case "/api/post":
+            case "/api/post/search":
+            case "/api/post/byDate":
+            case "/api/post/byTag":
+                return Group.POST_LIST;
+            case "/api/tag":
+                return Group.TAGS;
+            case "/api/calendar":
+                return Group.CALENDAR;
+            case "/api/init":
+                return Group.INIT;
+            case "/api/settings":
+                return Group.SETTINGS;
+            default:
+                return null;
+        }
+    }
+}
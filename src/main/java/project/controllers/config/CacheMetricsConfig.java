@@ -0,0 +1,35 @@
+package project.controllers.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.JCacheMetrics;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Configuration;
+
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+
+/**
+ * Метрики регионов второго уровня кэша Hibernate (cache.gets, cache.puts, cache.evictions с тегом cache=регион).
+ * Общая статистика Hibernate (hibernate.*) привязывается Boot автоматически биндером Micrometer HibernateMetrics
+ * при hibernate.generate_statistics=true. Регионы создаются при старте SessionFactory, поэтому привязка - после
+ * инициализации всех бинов
+ */
+@Configuration
+public class CacheMetricsConfig implements SmartInitializingSingleton {
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${spring.jpa.properties.hibernate.javax.cache.provider}")
+    private String cachingProvider;
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        CacheManager cacheManager = Caching.getCachingProvider(cachingProvider).getCacheManager();
+        for (String name : cacheManager.getCacheNames()) {
+            JCacheMetrics.monitor(meterRegistry, cacheManager.getCache(name));
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package project.controllers.config;
 
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.mail.javamail.JavaMailSender;
@@ -34,6 +35,7 @@ public class MailConfig {
     private String debug;
 
     @Bean
+    @ConditionalOnProperty(name = "mail.sink", havingValue = "smtp", matchIfMissing = true)
     public JavaMailSender javaMailSender(){
 
         JavaMailSenderImpl mailSender = new JavaMailSenderImpl();
@@ -0,0 +1,24 @@
+package project.controllers.config;
+
+import org.springframework.boot.actuate.redis.RedisHealthIndicator;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+
+/**
+ * Проверка Redis в /actuator/health только когда Redis выбран хотя бы для одного хранилища.
+ * Автоматическая проверка Boot отключена (management.health.redis.enabled=false): при хранилищах в памяти
+ * недоступный Redis переводил бы health в DOWN
+ */
+@Configuration
+public class RedisHealthConfig {
+
+    @Bean
+    @ConditionalOnExpression("'${session.store:memory}' == 'redis' " +
+            "or '${captcha.store:memory}' == 'redis' " +
+            "or '${settings.invalidation:local}' == 'redis'")
+    public RedisHealthIndicator redisHealthIndicator(RedisConnectionFactory connectionFactory) {
+        return new RedisHealthIndicator(connectionFactory);
+    }
+}
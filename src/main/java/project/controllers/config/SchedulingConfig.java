@@ -0,0 +1,15 @@
+package project.controllers.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * Включает фоновые задачи (@Scheduled) приложения.
+ * Задач около десяти, поэтому у планировщика несколько потоков (spring.task.scheduling.pool.size):
+ * медленная задача не задерживает сброс просмотров и отправку почты
+ */
+
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+}
@@ -6,7 +6,6 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.web.bind.annotation.*;
 import project.dto.*;
-import project.models.CaptchaCode;
 import project.models.User;
 import project.services.*;
 
@@ -26,6 +25,8 @@ public class AuthController {
 
     private final AuthService authService;
 
+    private final CurrentUser currentUser;
+
     private final CaptchaCodeService captchaCodeService;
 
     private final EmailService emailService;
@@ -49,7 +50,7 @@ public class AuthController {
 
 
         if (authService.checkAuthorization()) {
-            User userFromDB = userService.findUserById(authService.getUserIdBySession());
+            User userFromDB = currentUser.getUser();
             return getAuthUserResponseEntityDto(userFromDB);
         }
         return ResponseEntity.ok(new ResultTrueFalseDto(false));
@@ -65,12 +66,12 @@ public class AuthController {
 
     @PostMapping("register")
     public ResponseEntity<?> register(@RequestBody RegisterDto registerDto, HttpServletRequest request) {
-        CaptchaCode captcha = captchaCodeService.findCaptchaByCodeAndSecretCode(
+        boolean captchaValid = captchaCodeService.checkCaptcha(
                 registerDto.getCaptcha(), registerDto.getCaptchaSecret());
 
         Map<String, String> errors = authService.checkOnErrors(
                 registerDto.getPassword(),
-                captcha,
+                captchaValid,
                 userService.findUserByEmail(registerDto.getEmail()),
                 new User(),
                 registerDto.getName()
@@ -94,7 +95,7 @@ public class AuthController {
         /**
          * Добавлено удаление каптчи после использования
          */
-        captchaCodeService.deleteCaptcha(captcha);
+        captchaCodeService.deleteCaptcha(registerDto.getCaptchaSecret());
 
         return ResponseEntity.ok(new ResultTrueFalseDto(true));
     }
@@ -113,12 +114,12 @@ public class AuthController {
     @PostMapping("password")
     public ResponseEntity<?> password(@RequestBody PasswordRestoreDto passwordRestoreDto) {
         User existUser = userService.findUserByRecoverCode(passwordRestoreDto.getCode());
-        CaptchaCode captcha = captchaCodeService.findCaptchaByCodeAndSecretCode(
+        boolean captchaValid = captchaCodeService.checkCaptcha(
                 passwordRestoreDto.getCaptcha(), passwordRestoreDto.getCaptchaSecret());
 
         Map<String, String> errors = authService.checkOnErrors(
                 passwordRestoreDto.getPassword(),
-                captcha,
+                captchaValid,
                 null,
                 existUser,
                 null
@@ -135,7 +136,7 @@ public class AuthController {
         /**
          * Добавлено удаление каптчи после использования
          */
-        captchaCodeService.deleteCaptcha(captcha);
+        captchaCodeService.deleteCaptcha(passwordRestoreDto.getCaptchaSecret());
 
         return ResponseEntity.ok(new ResultTrueFalseDto(true));
     }
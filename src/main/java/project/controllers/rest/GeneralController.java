@@ -2,8 +2,6 @@ package project.controllers.rest;
 
 import lombok.RequiredArgsConstructor;
 import lombok.SneakyThrows;
-import org.apache.commons.lang3.RandomStringUtils;
-import org.imgscalr.Scalr;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
@@ -14,17 +12,14 @@ import project.controllers.exceptions.BadRequestException;
 import project.controllers.exceptions.UnauthorizedException;
 import project.dto.*;
 import project.models.*;
+import project.models.enums.GlobalSettingsEnum;
 import project.models.enums.ModerationStatusesEnum;
 import project.services.*;
 
-import javax.imageio.ImageIO;
-import java.awt.image.BufferedImage;
-import java.io.ByteArrayInputStream;
-import java.io.File;
-import java.util.Comparator;
+import java.util.EnumMap;
 import java.util.HashMap;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/api/")
@@ -33,22 +28,31 @@ public class GeneralController {
 
     private final AuthService authService;
 
+    private final CurrentUser currentUser;
+
     private final UserService userService;
 
     private final GlobalSettingsService globalSettingsService;
 
-    private final TagService tagService;
+    private final TagCloudService tagCloudService;
 
     private final PostService postService;
 
-    private final Post2TagService post2TagService;
-
     private final PostCommentService postCommentService;
 
     private final GeneralService generalService;
 
-    @Value("${upload.path}")
-    private String location;
+    private final CalendarService calendarService;
+
+    private final ImageService imageService;
+
+    private final PostCountersService postCountersService;
+
+    @Value("${image.avatar.rendition}")
+    private String avatarRendition;
+
+    @Value("${image.post.rendition}")
+    private String postImageRendition;
 
     @Value("${name.max.length}")
     private Integer nameMaxLength;
@@ -76,19 +80,12 @@ public class GeneralController {
 
     @GetMapping("tag")
     public ResponseEntity<?> getTags(@RequestParam(required = false) String query) {
-        List<Tag> tagList = query != null ? tagService.findByStartsWith(query) : tagService.findAllTags();
+        List<TagDto> tagDtoList = tagCloudService.getTags(query);
 
-        if (tagList.size() == 0) {
+        if (tagDtoList != null && tagDtoList.size() == 0) {
             return ResponseEntity.ok(null);
         }
 
-        List<TagDto> tagDtoList = tagList.stream()
-                .map(this::getTagDto)
-                .sorted(Comparator.comparing(TagDto::getWeight).reversed())
-                .collect(Collectors.toList());
-
-        tagDtoList = tagService.setWeights(tagDtoList);
-
         return ResponseEntity.ok(new TagListDto(tagDtoList));
     }
 
@@ -112,22 +109,35 @@ public class GeneralController {
 
         Post moderatePost = postService.findPostById(moderationPostDto.getPostId());
 
+        ModerationStatusesEnum status = moderatePost.getModerationStatus();
         String decision = moderationPostDto.getDecision();
         if (decision.equals("accept")) {
-            moderatePost.setModerationStatus(ModerationStatusesEnum.ACCEPTED);
+            status = ModerationStatusesEnum.ACCEPTED;
         } else if (decision.equals("decline")) {
-            moderatePost.setModerationStatus(ModerationStatusesEnum.DECLINED);
+            status = ModerationStatusesEnum.DECLINED;
         }
-        User moderator = userService.findUserById(authService.getUserIdBySession());
-        moderatePost.setModerator(moderator);
 
-        postService.savePost(moderatePost);
+        postService.moderatePost(moderatePost, status, currentUser.getUser());
+    }
+
+    @PostMapping("admin/counters/repair")
+    public ResponseEntity<?> repairCounters() {
+
+        if (!authService.checkAuthorization()) {
+            throw new UnauthorizedException();
+        }
+
+        if (currentUser.getUser().getIsModerator() != 1) {
+            throw new BadRequestException("У вас нет прав для совершения данного действия");
+        }
+
+        return ResponseEntity.ok(new ResultTrueFalseDto(postCountersService.startRepair()));
     }
 
     @GetMapping("calendar")
     public ResponseEntity<?> calendar(@RequestParam(required = false) Integer year) {
 
-        return ResponseEntity.ok(postService.getCalendarDto(year));
+        return ResponseEntity.ok(calendarService.getCalendarDto(year));
     }
 
     @PostMapping("comment")
@@ -148,7 +158,7 @@ public class GeneralController {
             throw new UnauthorizedException();
         }
 
-        User exist = userService.findUserById(authService.getUserIdBySession());
+        User exist = currentUser.getUser();
 
         ErrorsDto errorsDto = checkOnErrorsProfile(myProfileDto, exist, null);
         if (errorsDto.getErrors().size() > 0) {
@@ -159,7 +169,7 @@ public class GeneralController {
             String userPhoto = exist.getPhoto();
 
             if (userPhoto != null) {
-                new File(userPhoto.replaceFirst("/", "")).delete();
+                imageService.releaseImage(userPhoto);
             }
             exist.setPhoto(null);
         }
@@ -176,24 +186,6 @@ public class GeneralController {
         return ResponseEntity.ok(new ResultTrueFalseDto(true));
     }
 
-    private String prepareAndSaveImage(MultipartFile image) {
-        String type = image.getContentType().split("/")[1];
-        String randomName = RandomStringUtils.randomAlphanumeric(10);
-        String dir1 = RandomStringUtils.randomAlphabetic(2).toLowerCase();
-        String dir2 = RandomStringUtils.randomAlphabetic(2).toLowerCase();
-        String dir3 = RandomStringUtils.randomAlphabetic(2).toLowerCase();
-        String dstPath = String.format("%s%s/%s/%s/", location, dir1, dir2, dir3);
-        File uploadFolder = new File(dstPath);
-
-        if (!uploadFolder.exists()) {
-            uploadFolder.mkdirs();
-        }
-        File dstFile = new File(uploadFolder, randomName + "." + type);
-        saveImage(50, image, dstFile, type);
-
-        return String.format("/%s%s.%s", dstPath, randomName, type);
-    }
-
     @SneakyThrows
     @PostMapping(value = "profile/my", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
     public ResponseEntity<?> editProfileWithPhoto(@RequestParam(value = "photo") MultipartFile photo,
@@ -203,7 +195,7 @@ public class GeneralController {
             throw new UnauthorizedException();
         }
 
-        User exist = userService.findUserById(authService.getUserIdBySession());
+        User exist = currentUser.getUser();
 
         ErrorsDto errorsDto = checkOnErrorsProfile(myProfileDto, exist, photo);
         if (errorsDto.getErrors().size() > 0) {
@@ -211,11 +203,11 @@ public class GeneralController {
         }
 
         if (photo != null) {
-            String imagePath = prepareAndSaveImage(photo);
+            String imagePath = imageService.saveImage(photo, avatarRendition);
             String oldUserPhoto = exist.getPhoto();
 
             if (oldUserPhoto != null) {
-                new File(oldUserPhoto.replaceFirst("/", "")).delete();
+                imageService.releaseImage(oldUserPhoto);
             }
             exist.setPhoto(imagePath);
         }
@@ -240,20 +232,11 @@ public class GeneralController {
             throw new UnauthorizedException();
         }
 
-        String imagePath = prepareAndSaveImage(image);
+        String imagePath = imageService.saveImage(image, postImageRendition);
 
         return ResponseEntity.ok(imagePath);
     }
 
-    @SneakyThrows
-    private void saveImage(Integer newWidth, MultipartFile image, File dstFile, String type) {
-        BufferedImage bufferedImage = ImageIO.read(new ByteArrayInputStream(image.getBytes()));
-        int newHeight = (int) Math.round(bufferedImage.getHeight() / (bufferedImage.getWidth() / (double) newWidth));
-        BufferedImage newImage = Scalr.resize(bufferedImage, Scalr.Method.ULTRA_QUALITY, newWidth, newHeight);
-
-        ImageIO.write(newImage, type, dstFile);
-    }
-
     private ErrorsDto checkOnErrorsProfile(MyProfileDto myProfileDto, User user, MultipartFile photo) {
         HashMap<String, String> errors = new HashMap<>();
 
@@ -315,28 +298,20 @@ public class GeneralController {
         );
     }
 
-    private TagDto getTagDto(Tag tag) {
-        Integer postWithTagCount = post2TagService.countPostsWithTag(tag.getId());
-        Integer postTotalCount = postService.countPosts();
-        Float weight = (float)postWithTagCount / postTotalCount;
-
-        return new TagDto(tag.getName(), weight);
-    }
-
     /**
      * Метод сохранения и/или возврата настроек (убирает дублирование кода)
      */
     @SneakyThrows
     private ResponseEntity<?> makeSettings(GlobalSettingsDto globalSettingsDto) {
 
-        List<GlobalSetting> settings = globalSettingsService.findAll();
         if (globalSettingsDto != null) {
             if (authService.checkAuthorization()) {
-                User userFromDB = userService.findUserById(authService.getUserIdBySession());
+                User userFromDB = currentUser.getUser();
                 if (userFromDB.getIsModerator() == 1) {
-                    settings.get(0).setValue(globalSettingsDto.getMultiuserMode() ? "YES" : "NO");
-                    settings.get(1).setValue(globalSettingsDto.getPostPremoderation() ? "YES" : "NO");
-                    settings.get(2).setValue(globalSettingsDto.getStatisticsIsPublic() ? "YES" : "NO");
+                    Map<GlobalSettingsEnum, Boolean> settings = new EnumMap<>(GlobalSettingsEnum.class);
+                    settings.put(GlobalSettingsEnum.MULTIUSER_MODE, globalSettingsDto.getMultiuserMode());
+                    settings.put(GlobalSettingsEnum.POST_PREMODERATION, globalSettingsDto.getPostPremoderation());
+                    settings.put(GlobalSettingsEnum.STATISTICS_IS_PUBLIC, globalSettingsDto.getStatisticsIsPublic());
 
                     globalSettingsService.saveSettings(settings);
                     return ResponseEntity.ok(globalSettingsDto);
@@ -344,10 +319,11 @@ public class GeneralController {
             }
             throw new BadRequestException("У вас нет прав для совершения данного действия");
         } else {
+            Map<GlobalSettingsEnum, Boolean> settings = globalSettingsService.getSettings();
             globalSettingsDto = new GlobalSettingsDto(
-                    settings.get(0).getValue().equals("YES"),
-                    settings.get(1).getValue().equals("YES"),
-                    settings.get(2).getValue().equals("YES")
+                    settings.get(GlobalSettingsEnum.MULTIUSER_MODE),
+                    settings.get(GlobalSettingsEnum.POST_PREMODERATION),
+                    settings.get(GlobalSettingsEnum.STATISTICS_IS_PUBLIC)
             );
             return ResponseEntity.ok(globalSettingsDto);
         }
@@ -8,22 +8,22 @@ import org.springframework.web.bind.annotation.*;
 import project.controllers.exceptions.BadRequestException;
 import project.controllers.exceptions.UnauthorizedException;
 import project.dto.*;
-import project.models.GlobalSetting;
 import project.models.Post;
 import project.models.PostComment;
 import project.models.User;
 import project.models.enums.GlobalSettingsEnum;
+import project.repositories.PostSummary;
 import project.services.*;
+import project.services.search.PostSearchResult;
+import project.services.search.PostSearchService;
 
 import java.time.ZoneId;
 import java.time.ZoneOffset;
-import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
-import static java.util.stream.Collectors.toList;
-
 @RestController
 @RequestMapping("/api/post")
 @RequiredArgsConstructor
@@ -35,13 +35,17 @@ public class PostController {
 
     private final PostVoteService postVoteService;
 
+    private final PostFeedService postFeedService;
+
+    private final PostSearchService postSearchService;
+
     private final UserService userService;
 
     private final TagService tagService;
 
     private final AuthService authService;
 
-    private final Post2TagService post2TagService;
+    private final CurrentUser currentUser;
 
     private final GlobalSettingsService globalSettingsService;
 
@@ -51,38 +55,50 @@ public class PostController {
     @Value("${text.min.length}")
     private Integer textMinLength;
 
-    @Value("${announce.length}")
-    private Integer announceLength;
-
     @GetMapping
     public ResponseEntity<?> getPosts(
-            @RequestParam Integer offset,
+            @RequestParam(defaultValue = "0") Integer offset,
             @RequestParam Integer limit,
-            @RequestParam String mode
+            @RequestParam String mode,
+            @RequestParam(required = false) String cursor
     ) {
-        List<Post> postList = postService.getPostsBySort(mode, offset, limit);
+        List<PostSummary> postList = cursor == null
+                ? postService.getPostsBySort(mode, offset, limit)
+                : postService.getPostsBySortAfter(mode, cursor, limit);
 
         List<PostDto> dtos = getPostDtoList(postList);
 
-        return ResponseEntity.ok(new PostListDto(postService.countPosts(), dtos));
+        return ResponseEntity.ok(new PostListDto(
+                postService.countPosts(),
+                dtos,
+                cursor == null ? null : postService.getNextCursor(mode, postList, limit)
+        ));
     }
 
     @GetMapping("/search")
     public ResponseEntity<?> searchPosts(
-            @RequestParam Integer offset,
+            @RequestParam(defaultValue = "0") Integer offset,
             @RequestParam Integer limit,
-            @RequestParam String query
+            @RequestParam String query,
+            @RequestParam(required = false) String cursor
     ) {
-        List<Post> postList = postService.findPostsByQuery(query, offset, limit);
+        PostSearchResult searchResult = postSearchService.search(query, offset, limit, cursor);
+        List<PostSummary> postList = postService.findPostsByIds(searchResult.getPostIds());
 
         List<PostDto> dtos = getPostDtoList(postList);
+        dtos.forEach(dto -> {
+            String highlight = searchResult.getHighlights().get(dto.getId());
+            if (highlight != null) {
+                dto.setAnnounce(highlight);
+            }
+        });
 
-        return ResponseEntity.ok(new PostListDto(postService.countPostsByQuery(query), dtos));
+        return ResponseEntity.ok(new PostListDto(searchResult.getCount(), dtos, searchResult.getNextCursor()));
     }
 
     @GetMapping("/{id}")
     public ResponseEntity<?> getPostById(@PathVariable Integer id) {
-        User user = userService.findUserById(authService.getUserIdBySession());
+        User user = currentUser.getUser();
 
         Post post = postService.getPostByIdAndModerationStatus(id, user);
 
@@ -95,28 +111,42 @@ public class PostController {
 
     @GetMapping("/byDate")
     public ResponseEntity<PostListDto> findPostsByDate(
-            @RequestParam Integer offset,
+            @RequestParam(defaultValue = "0") Integer offset,
             @RequestParam Integer limit,
-            @RequestParam String date
+            @RequestParam String date,
+            @RequestParam(required = false) String cursor
     ) {
-        List<Post> postList = postService.getPostsByDate(date, offset, limit);
+        List<PostSummary> postList = cursor == null
+                ? postService.getPostsByDate(date, offset, limit)
+                : postService.getPostsByDateAfter(date, cursor, limit);
 
         List<PostDto> dtos = getPostDtoList(postList);
 
-        return ResponseEntity.ok(new PostListDto(postService.countPostsByDate(date), dtos));
+        return ResponseEntity.ok(new PostListDto(
+                postService.countPostsByDate(date),
+                dtos,
+                getNextTimeCursor(cursor, postList, limit)
+        ));
     }
 
     @GetMapping("/byTag")
     public ResponseEntity<?> findPostsByTag(
-            @RequestParam Integer offset,
+            @RequestParam(defaultValue = "0") Integer offset,
             @RequestParam Integer limit,
-            @RequestParam String tag
+            @RequestParam String tag,
+            @RequestParam(required = false) String cursor
     ) {
-        List<Post> postList = postService.findPostsByTag(tag, offset, limit);
+        List<PostSummary> postList = cursor == null
+                ? postService.findPostsByTag(tag, offset, limit)
+                : postService.findPostsByTagAfter(tag, cursor, limit);
 
         List<PostDto> dtos = getPostDtoList(postList);
 
-        return ResponseEntity.ok(new PostListDto(postService.countPostsByTag(tag), dtos));
+        return ResponseEntity.ok(new PostListDto(
+                postService.countPostsByTag(tag),
+                dtos,
+                getNextTimeCursor(cursor, postList, limit)
+        ));
     }
 
     @GetMapping("/moderation")
@@ -128,16 +158,16 @@ public class PostController {
             throw new UnauthorizedException();
         }
 
-        List<Post> postList = postService.getPostsByNeedModeration(
+        List<PostSummary> postList = postService.getPostsByNeedModeration(
                 status,
-                userService.findUserById(authService.getUserIdBySession()),
+                currentUser.getUser(),
                 offset, limit);
 
         List<PostDto> dtos = getPostDtoList(postList);
 
         return ResponseEntity.ok(new PostListDto(postService.countPostsByNeedModeration(
                 status,
-                userService.findUserById(authService.getUserIdBySession())),
+                currentUser.getUser()),
                 dtos
         ));
     }
@@ -152,7 +182,7 @@ public class PostController {
             throw new UnauthorizedException();
         }
 
-        List<Post> postList = postService.getMyPostsByStatus(authService.getUserIdBySession(), status, offset, limit);
+        List<PostSummary> postList = postService.getMyPostsByStatus(authService.getUserIdBySession(), status, offset, limit);
 
         List<PostDto> dtos = getPostDtoList(postList);
 
@@ -228,81 +258,43 @@ public class PostController {
 
     @SneakyThrows
     private ResponseEntity<?> savePostAndTags(PostPublishDto postPublishDto, Integer id, String type) {
-        User author = userService.findUserById(authService.getUserIdBySession());
-
-        GlobalSetting globalSetting = globalSettingsService.getGlobalSettingByCode(GlobalSettingsEnum.MULTIUSER_MODE);
+        User author = currentUser.getUser();
 
-        if (globalSetting.getValue().equals("NO") && author.getIsModerator() == 0) {
+        if (!globalSettingsService.isEnabled(GlobalSettingsEnum.MULTIUSER_MODE) && author.getIsModerator() == 0) {
             throw new BadRequestException("На данный момент публикация постов запрещена!");
         }
 
-        globalSetting = globalSettingsService.getGlobalSettingByCode(GlobalSettingsEnum.POST_PREMODERATION);
-
-        boolean premoderation = true;
-        if (globalSetting.getValue().equals("NO")) {
-            premoderation = false;
-        }
+        boolean premoderation = globalSettingsService.isEnabled(GlobalSettingsEnum.POST_PREMODERATION);
 
         Integer postId = type.equals("add") ?
                 postService.addPost(postPublishDto, author, premoderation)
                 : postService.editPost(postPublishDto, author, id, premoderation);
 
-        List<String> tagNamesNew = postPublishDto.getTags();
-        List<String> tagNamesOld = tagService.findAllByPostId(postId);
-        List<String> tagNamesDeleted = new ArrayList<>();
-
-        tagNamesOld.forEach(tagNameOld -> {
-            if (!tagNamesNew.contains(tagNameOld)) {
-                tagNamesDeleted.add(tagNameOld);
-            }
-            tagNamesNew.remove(tagNameOld);
-        });
-
-        List<Integer> tagIdsToDelete = tagService.findIdsByNames(tagNamesDeleted);
-        List<Integer> tagIdsToSave = tagService.saveTags(tagNamesNew, postId);
-
-        post2TagService.deletePost2Tag(postId, tagIdsToDelete);
-        post2TagService.savePost2Tag(postId, tagIdsToSave);
+        tagService.syncPostTags(postId, postPublishDto.getTags());
 
         return ResponseEntity.ok(new ResultTrueFalseDto(true));
     }
 
-    private PostDto getPostDto(Post post) {
-
-        PostUserDto authorDto = new PostUserDto(post.getAuthor().getId(), post.getAuthor().getName());
-
-        Integer postId = post.getId();
-        Integer likeCount = postVoteService.countVotesByPostIdAndValue(postId, 1);
-        Integer dislikeCount = postVoteService.countVotesByPostIdAndValue(postId, -1);
-        Integer commentCount = postCommentService.countByPostId(postId);
-
-        return new PostDto(
-                postId,
-                post.getTime().atZone(ZoneId.systemDefault()).withZoneSameInstant(ZoneOffset.UTC).toEpochSecond(),
-                authorDto,
-                post.getTitle(),
-                post.getText()
-                        .replaceAll("<(\"[^\"]*\"|'[^']*'|[^'\">])*>", "")
-                        .substring(0, announceLength),
-                likeCount,
-                dislikeCount,
-                commentCount,
-                post.getViewCount()
-        );
+    /**
+     * Курсор следующей страницы для лент, упорядоченных по времени; в режиме offset не возвращается
+     */
+    private String getNextTimeCursor(String cursor, List<PostSummary> postList, Integer limit) {
+        return cursor == null ? null : postService.getNextCursor("recent", postList, limit);
     }
 
-    private List<PostDto> getPostDtoList(List<Post> postList) {
-        return postList
-                .stream()
-                .map(this::getPostDto)
-                .collect(toList());
+    private List<PostDto> getPostDtoList(List<PostSummary> postList) {
+        return postFeedService.getPostDtoList(postList);
     }
 
     private OnePostDto getOnePostDto(Post post) {
-        PostDto postDto = getPostDto(post);
+        PostDto postDto = postFeedService.getPostDto(post);
 
         List<PostComment> commentList = postCommentService.findAllByPostId(postDto.getId());
-        List<PostCommentDto> comments = commentList.stream().map(this::getPostCommentDto).collect(Collectors.toList());
+        Map<Integer, CommentUserDto> commentUsers = userService.findUserSummaries(
+                commentList.stream().map(PostComment::getUserId).collect(Collectors.toSet()));
+        List<PostCommentDto> comments = commentList.stream()
+                .map(comment -> getPostCommentDto(comment, commentUsers.get(comment.getUserId())))
+                .collect(Collectors.toList());
 
         List<String> tags = tagService.findAllByPostId(postDto.getId());
 
@@ -322,18 +314,12 @@ public class PostController {
         );
     }
 
-    private PostCommentDto getPostCommentDto(PostComment comment) {
-        User commentUser = userService.findUserById(comment.getUserId());
-
+    private PostCommentDto getPostCommentDto(PostComment comment, CommentUserDto commentUser) {
         return new PostCommentDto(
                 comment.getId(),
                 comment.getTime().atZone(ZoneId.systemDefault()).withZoneSameInstant(ZoneOffset.UTC).toEpochSecond(),
                 comment.getText(),
-                new CommentUserDto(
-                        commentUser.getId(),
-                        commentUser.getName(),
-                        commentUser.getPhoto()
-                )
+                commentUser
         );
     }
 }
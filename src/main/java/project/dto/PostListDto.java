@@ -1,5 +1,6 @@
 package project.dto;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 
@@ -12,4 +13,11 @@ public class PostListDto {
     private Integer count;
 
     private Collection<PostDto> posts;
+
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private String nextCursor;
+
+    public PostListDto(Integer count, Collection<PostDto> posts) {
+        this(count, posts, null);
+    }
 }
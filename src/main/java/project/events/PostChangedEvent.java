@@ -0,0 +1,44 @@
+package project.events;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import project.models.Post;
+import project.models.enums.ModerationStatusesEnum;
+
+import java.time.LocalDateTime;
+
+/**
+ * Пост создан, отредактирован или прошёл модерацию
+ */
+@Getter
+@AllArgsConstructor
+public class PostChangedEvent {
+
+    private final Post post;
+
+    /**
+     * Время публикации до изменения (null для нового поста)
+     */
+    private final LocalDateTime previousTime;
+
+    /**
+     * Был ли пост опубликован до изменения (см. isPublished)
+     */
+    private final boolean previouslyPublished;
+
+    /**
+     * Опубликован ли пост после изменения
+     */
+    public boolean isPublished() {
+        return isPublished(post);
+    }
+
+    /**
+     * Пост виден читателям: активен, принят модератором и время публикации наступило
+     */
+    public static boolean isPublished(Post post) {
+        return post.getIsActive() == 1
+                && post.getModerationStatus() == ModerationStatusesEnum.ACCEPTED
+                && post.getTime().isBefore(LocalDateTime.now());
+    }
+}
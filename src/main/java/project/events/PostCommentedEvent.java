@@ -0,0 +1,14 @@
+package project.events;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * К посту добавлен комментарий
+ */
+@Getter
+@AllArgsConstructor
+public class PostCommentedEvent {
+
+    private final Integer postId;
+}
@@ -0,0 +1,18 @@
+package project.events;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Изменились голоса за пост
+ */
+@Getter
+@AllArgsConstructor
+public class PostVotedEvent {
+
+    private final Integer postId;
+
+    private final int likeDelta;
+
+    private final int dislikeDelta;
+}
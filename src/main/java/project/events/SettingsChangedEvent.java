@@ -0,0 +1,7 @@
+package project.events;
+
+/**
+ * Изменились глобальные настройки (на этом или другом экземпляре приложения)
+ */
+public class SettingsChangedEvent {
+}
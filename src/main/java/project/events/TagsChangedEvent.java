@@ -0,0 +1,14 @@
+package project.events;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Изменились теги поста
+ */
+@Getter
+@AllArgsConstructor
+public class TagsChangedEvent {
+
+    private final Integer postId;
+}
@@ -0,0 +1,16 @@
+package project.events;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.Map;
+
+/**
+ * Накопленные просмотры записаны в БД: postId -> число новых просмотров
+ */
+@Getter
+@AllArgsConstructor
+public class ViewsFlushedEvent {
+
+    private final Map<Integer, Long> views;
+}
@@ -1,33 +0,0 @@
-package project.models;
-
-import lombok.Data;
-import lombok.NoArgsConstructor;
-
-import javax.persistence.*;
-import java.time.LocalDateTime;
-
-@Data
-@Entity
-@NoArgsConstructor
-@Table(name = "captcha_codes")
-public class CaptchaCode {
-
-    @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
-    private Integer id;
-
-    @Column(nullable = false)
-    private LocalDateTime time;
-
-    @Column(nullable = false)
-    private String code;
-
-    @Column(name = "secret_code", nullable = false)
-    private String secretCode;
-
-    public CaptchaCode(LocalDateTime time, String code, String secretCode) {
-        this.time = time;
-        this.code = code;
-        this.secretCode = secretCode;
-    }
-}
@@ -2,6 +2,8 @@ package project.models;
 
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import project.models.enums.GlobalSettingsEnum;
 
 import javax.persistence.*;
@@ -9,6 +11,8 @@ import javax.persistence.*;
 @Data
 @Entity
 @Table(name = "global_settings")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "global_settings")
 @NoArgsConstructor
 public class GlobalSetting {
 
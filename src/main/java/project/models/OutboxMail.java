@@ -0,0 +1,46 @@
+package project.models;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.*;
+import java.time.LocalDateTime;
+
+@Data
+@Entity
+@Table(name = "mail_outbox")
+@NoArgsConstructor
+public class OutboxMail {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Integer id;
+
+    @Column(name = "mail_to", nullable = false)
+    private String mailTo;
+
+    @Column(nullable = false)
+    private String subject;
+
+    @Column(nullable = false, columnDefinition = "TEXT")
+    private String text;
+
+    @Column(nullable = false)
+    private Integer attempts = 0;
+
+    @Column(name = "next_attempt_at", nullable = false)
+    private LocalDateTime nextAttemptAt;
+
+    @Column(nullable = false)
+    private Byte failed = 0;
+
+    @Column(name = "last_error", length = 1000)
+    private String lastError;
+
+    public OutboxMail(String mailTo, String subject, String text, LocalDateTime nextAttemptAt) {
+        this.mailTo = mailTo;
+        this.subject = subject;
+        this.text = text;
+        this.nextAttemptAt = nextAttemptAt;
+    }
+}
@@ -41,9 +41,27 @@ public class Post {
     @Column(length = 30000, nullable = false)
     private String text;
 
-    @Column(name = "view_count", nullable = false)
+    /**
+     * Текстовый анонс, вычисляется из text при публикации и редактировании (PostExcerptExtractor)
+     */
+    @Column(length = 1000)
+    private String excerpt;
+
+    /**
+     * Счётчики меняются только отдельными запросами (ViewCountService, PostsRepo), поэтому не участвуют в update сущности
+     */
+    @Column(name = "view_count", nullable = false, updatable = false)
     private Integer viewCount;
 
+    @Column(name = "like_count", nullable = false, updatable = false, columnDefinition = "int default 0")
+    private Integer likeCount = 0;
+
+    @Column(name = "dislike_count", nullable = false, updatable = false, columnDefinition = "int default 0")
+    private Integer dislikeCount = 0;
+
+    @Column(name = "comment_count", nullable = false, updatable = false, columnDefinition = "int default 0")
+    private Integer commentCount = 0;
+
     public Post(Byte isActive, ModerationStatusesEnum moderationStatus, User author, LocalDateTime time, String title, String text, Integer viewCount) {
         this.isActive = isActive;
         this.moderationStatus = moderationStatus;
@@ -6,7 +6,8 @@ import javax.persistence.*;
 
 @Entity
 @NoArgsConstructor
-@Table(name = "post2tag")
+@Table(name = "post2tag",
+        uniqueConstraints = @UniqueConstraint(name = "uk_post2tag_post_tag", columnNames = {"post_id", "tag_id"}))
 public class Post2Tag {
 
     @Id
@@ -8,7 +8,8 @@ import java.time.LocalDateTime;
 
 @Data
 @Entity
-@Table(name = "post_votes")
+@Table(name = "post_votes",
+        uniqueConstraints = @UniqueConstraint(name = "uk_post_votes_post_user", columnNames = {"post_id", "user_id"}))
 @NoArgsConstructor
 public class PostVote {
 
@@ -0,0 +1,33 @@
+package project.models;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Table;
+import java.time.LocalDateTime;
+
+@Data
+@Entity
+@NoArgsConstructor
+@Table(name = "sessions")
+public class UserSession {
+
+    @Id
+    @Column(name = "session_id", length = 64)
+    private String sessionId;
+
+    @Column(name = "user_id", nullable = false)
+    private Integer userId;
+
+    @Column(name = "expires_at", nullable = false)
+    private LocalDateTime expiresAt;
+
+    public UserSession(String sessionId, Integer userId, LocalDateTime expiresAt) {
+        this.sessionId = sessionId;
+        this.userId = userId;
+        this.expiresAt = expiresAt;
+    }
+}
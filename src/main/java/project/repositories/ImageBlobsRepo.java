@@ -0,0 +1,37 @@
+package project.repositories;
+
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+import project.models.ImageBlob;
+
+import javax.persistence.QueryHint;
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface ImageBlobsRepo extends CrudRepository<ImageBlob, String> {
+
+    @Transactional
+    @Modifying
+    @QueryHints(@QueryHint(name = "org.hibernate.query.native.spaces", value = "image_blobs"))
+    @Query(value =
+            "INSERT INTO image_blobs (hash, type, ref_count, released_at) VALUES (:hash, :type, 1, NULL) " +
+            "ON DUPLICATE KEY UPDATE ref_count = ref_count + 1, released_at = NULL", nativeQuery = true)
+    void addReference(@Param("hash") String hash, @Param("type") String type);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE ImageBlob b SET b.refCount = b.refCount - 1, b.releasedAt = :now " +
+            "WHERE b.hash = :hash AND b.refCount > 0")
+    Integer releaseReference(String hash, LocalDateTime now);
+
+    List<ImageBlob> findAllByRefCountAndReleasedAtBefore(Integer refCount, LocalDateTime time);
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM ImageBlob b WHERE b.hash = :hash AND b.refCount = 0 AND b.releasedAt < :cutoff")
+    Integer deleteUnreferenced(String hash, LocalDateTime cutoff);
+}
@@ -0,0 +1,27 @@
+package project.repositories;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.transaction.annotation.Transactional;
+import project.models.OutboxMail;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface MailOutboxRepo extends CrudRepository<OutboxMail, Integer> {
+
+    List<OutboxMail> findAllByFailedAndNextAttemptAtBefore(Byte failed, LocalDateTime time, Pageable pageable);
+
+    Long countByFailed(Byte failed);
+
+    /**
+     * Захват письма воркером: срабатывает только если письмо не захвачено другим воркером или экземпляром
+     */
+    @Transactional
+    @Modifying
+    @Query("UPDATE OutboxMail m SET m.nextAttemptAt = :lease " +
+            "WHERE m.id = :id AND m.nextAttemptAt = :current")
+    Integer claim(Integer id, LocalDateTime current, LocalDateTime lease);
+}
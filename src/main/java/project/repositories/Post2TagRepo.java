@@ -1,20 +1,21 @@
 package project.repositories;
 
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
+import org.springframework.transaction.annotation.Transactional;
 import project.models.Post2Tag;
 
-import java.util.Optional;
+import java.util.Collection;
+import java.util.Set;
 
 public interface Post2TagRepo extends CrudRepository<Post2Tag, Integer> {
 
-    @Query("select count(p2t) from Post2Tag as p2t " +
-            "join Post as p on p.id = p2t.postId " +
-            "where p2t.tagId = :tagId " +
-            "and p.isActive = 1 " +
-            "and p.moderationStatus = 'ACCEPTED' " +
-            "and p.time < NOW()")
-    Integer countByTagId(Integer tagId);
+    @Query("SELECT p2t.tagId FROM Post2Tag p2t WHERE p2t.postId = :postId")
+    Set<Integer> findTagIdsByPostId(Integer postId);
 
-    Optional<Post2Tag> findByPostIdAndTagId(Integer postId, Integer tagId);
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM Post2Tag p2t WHERE p2t.postId = :postId AND p2t.tagId IN :tagIds")
+    void deleteByPostIdAndTagIdIn(Integer postId, Collection<Integer> tagIds);
 }
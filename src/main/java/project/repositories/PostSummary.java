@@ -0,0 +1,35 @@
+package project.repositories;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.time.LocalDateTime;
+
+/**
+ * Строка ленты постов: только поля, нужные для анонса. Заполняется конструкторным выражением JPQL,
+ * поэтому не попадает в контекст персистентности и не проверяется на изменения
+ */
+@Getter
+@AllArgsConstructor
+public class PostSummary {
+
+    private final Integer id;
+
+    private final LocalDateTime time;
+
+    private final Integer authorId;
+
+    private final String authorName;
+
+    private final String title;
+
+    private final String excerpt;
+
+    private final Integer likeCount;
+
+    private final Integer dislikeCount;
+
+    private final Integer commentCount;
+
+    private final Integer viewCount;
+}
@@ -6,7 +6,5 @@ import project.models.PostComment;
 import java.util.List;
 
 public interface PostsCommentsRepo extends CrudRepository<PostComment, Integer> {
-    Integer countByPostId(Integer postId);
-
     List<PostComment> findAllByPostId(Integer postId);
 }
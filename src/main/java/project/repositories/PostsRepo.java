@@ -3,6 +3,7 @@ package project.repositories;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.CrudRepository;
 import org.springframework.data.repository.query.Param;
 import org.springframework.transaction.annotation.Transactional;
@@ -10,75 +11,144 @@ import project.models.Post;
 import project.models.User;
 import project.models.enums.ModerationStatusesEnum;
 
+import javax.persistence.QueryHint;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 public interface PostsRepo extends CrudRepository<Post, Integer> {
 
+    String SUMMARY = "SELECT new project.repositories.PostSummary(" +
+            "p.id, p.time, a.id, a.name, p.title, p.excerpt, p.likeCount, p.dislikeCount, p.commentCount, p.viewCount) " +
+            "FROM Post p JOIN p.author a ";
+
     @Transactional
     @Modifying
-    @Query("UPDATE Post p SET p.viewCount = :viewCount WHERE p.id = :postId")
-    void updateViewCount(Integer postId, Integer viewCount);
+    @QueryHints(@QueryHint(name = "org.hibernate.query.native.spaces", value = "posts"))
+    @Query(value =
+            "UPDATE posts SET " +
+            "like_count = like_count + :likeDelta, " +
+            "dislike_count = dislike_count + :dislikeDelta " +
+            "WHERE id = :postId", nativeQuery = true)
+    void updateVoteCounts(
+            @Param("postId") Integer postId,
+            @Param("likeDelta") Integer likeDelta,
+            @Param("dislikeDelta") Integer dislikeDelta
+    );
 
-    List<Post> findAllByTimeBeforeAndIsActiveAndModerationStatus(
-            LocalDateTime time,
-            Byte isActive,
-            ModerationStatusesEnum status,
-            Pageable pageable
+    @Transactional
+    @Modifying
+    @QueryHints(@QueryHint(name = "org.hibernate.query.native.spaces", value = "posts"))
+    @Query(value =
+            "UPDATE posts SET comment_count = comment_count + :delta " +
+            "WHERE id = :postId", nativeQuery = true)
+    void updateCommentCount(@Param("postId") Integer postId, @Param("delta") Integer delta);
+
+    @Query("select max(p.id) from Post p")
+    Integer findMaxId();
+
+    /**
+     * Блокирует посты диапазона до пересчёта: голос или комментарий, ещё не увеличивший счётчик,
+     * дождётся конца пересчёта и добавит себя поверх уже посчитанного значения
+     */
+    @Query(value = "SELECT id FROM posts WHERE id BETWEEN :fromId AND :toId FOR UPDATE", nativeQuery = true)
+    List<Integer> lockRange(@Param("fromId") Integer fromId, @Param("toId") Integer toId);
+
+    @Modifying
+    @QueryHints(@QueryHint(name = "org.hibernate.query.native.spaces", value = "posts"))
+    @Query(value =
+            "UPDATE posts p SET " +
+            "p.like_count = (SELECT count(*) FROM post_votes pv WHERE pv.post_id = p.id AND pv.value = 1), " +
+            "p.dislike_count = (SELECT count(*) FROM post_votes pv WHERE pv.post_id = p.id AND pv.value = -1), " +
+            "p.comment_count = (SELECT count(*) FROM post_comments pc WHERE pc.post_id = p.id) " +
+            "WHERE p.id BETWEEN :fromId AND :toId", nativeQuery = true)
+    Integer rebuildCounters(@Param("fromId") Integer fromId, @Param("toId") Integer toId);
+
+    List<Post> findAllByExcerptIsNull(Pageable pageable);
+
+    @Query(SUMMARY +
+            "WHERE p.time < :now " +
+            "AND p.isActive = 1 " +
+            "AND p.moderationStatus = :status")
+    List<PostSummary> findAllPublished(LocalDateTime now, ModerationStatusesEnum status, Pageable pageable);
+
+    @Query(SUMMARY +
+            "WHERE p.time < :now " +
+            "AND p.isActive = 1 " +
+            "AND p.moderationStatus = :status " +
+            "AND (p.time < :time OR (p.time = :time AND p.id < :id)) " +
+            "ORDER BY p.time DESC, p.id DESC")
+    List<PostSummary> findAllPublishedBeforeTimeCursor(
+            LocalDateTime now, ModerationStatusesEnum status, LocalDateTime time, Integer id, Pageable pageable
     );
 
-    @Query("SELECT p FROM Post p " +
-            "JOIN PostComment pc on pc.postId = p.id " +
-            "WHERE p.moderationStatus = :status " +
-            "AND p.isActive = :isActive " +
-            "GROUP BY pc.postId " +
-            "ORDER BY count(p) DESC")
-    List<Post> findAllByModerationStatusAndIsActiveAndCommentsCount(ModerationStatusesEnum status, Byte isActive, Pageable pageable);
+    @Query(SUMMARY +
+            "WHERE p.time < :now " +
+            "AND p.isActive = 1 " +
+            "AND p.moderationStatus = :status " +
+            "AND (p.time > :time OR (p.time = :time AND p.id > :id)) " +
+            "ORDER BY p.time ASC, p.id ASC")
+    List<PostSummary> findAllPublishedAfterTimeCursor(
+            LocalDateTime now, ModerationStatusesEnum status, LocalDateTime time, Integer id, Pageable pageable
+    );
 
-    @Query("SELECT p FROM Post p " +
-            "JOIN PostVote pv on pv.postId = p.id " +
-            "WHERE p.moderationStatus = :status " +
-            "AND p.isActive = :isActive " +
-            "AND pv.value = 1 " +
-            "GROUP BY pv.postId " +
-            "ORDER BY count(p) DESC")
-    List<Post> findAllByModerationStatusAndIsActiveAndLikesCount(ModerationStatusesEnum status, Byte isActive, Pageable pageable);
-
-    List<Post> findAllByTitleContainingOrTextContainingAndTimeBeforeAndIsActiveAndModerationStatus(
-            String title,
-            String text,
-            LocalDateTime time,
-            Byte isActive,
-            ModerationStatusesEnum status,
-            Pageable pageable
+    @Query(SUMMARY +
+            "WHERE p.time < :now " +
+            "AND p.isActive = 1 " +
+            "AND p.moderationStatus = :status " +
+            "AND (p.commentCount < :count OR (p.commentCount = :count AND p.id < :id)) " +
+            "ORDER BY p.commentCount DESC, p.id DESC")
+    List<PostSummary> findAllPublishedBeforeCommentCountCursor(
+            LocalDateTime now, ModerationStatusesEnum status, Integer count, Integer id, Pageable pageable
     );
 
-    Integer countAllByTitleContainingOrTextContainingAndTimeBeforeAndIsActiveAndModerationStatus(
-            String title,
-            String text,
-            LocalDateTime time,
-            Byte isActive,
-            ModerationStatusesEnum status
+    @Query(SUMMARY +
+            "WHERE p.time < :now " +
+            "AND p.isActive = 1 " +
+            "AND p.moderationStatus = :status " +
+            "AND (p.likeCount < :count OR (p.likeCount = :count AND p.id < :id)) " +
+            "ORDER BY p.likeCount DESC, p.id DESC")
+    List<PostSummary> findAllPublishedBeforeLikeCountCursor(
+            LocalDateTime now, ModerationStatusesEnum status, Integer count, Integer id, Pageable pageable
     );
 
-    @Query(value =
-            "SELECT * FROM posts " +
-            "WHERE date(time) = :date " +
-            "AND is_active = 1 " +
-            "AND moderation_status = 'ACCEPTED' ", nativeQuery = true)
-    List<Post> findAllByTime_DateAndIsActiveAndModerationStatus(@Param("date") String date, Pageable pageable);
+    @Query(SUMMARY +
+            "WHERE p.time >= :from " +
+            "AND p.time < :to " +
+            "AND p.isActive = 1 " +
+            "AND p.moderationStatus = :status " +
+            "ORDER BY p.time DESC, p.id DESC")
+    List<PostSummary> findAllByTimeRange(
+            LocalDateTime from, LocalDateTime to, ModerationStatusesEnum status, Pageable pageable
+    );
 
-    @Query(value =
-            "select count(*) from posts " +
-                    "where date(time) = :date " +
-                    "and is_active = 1 " +
-                    "and moderation_status = 'ACCEPTED'", nativeQuery = true)
-    Integer countByTime(@Param("date") String date);
+    @Query(SUMMARY +
+            "WHERE p.time >= :from " +
+            "AND p.time < :to " +
+            "AND p.isActive = 1 " +
+            "AND p.moderationStatus = :status " +
+            "AND (p.time < :time OR (p.time = :time AND p.id < :id)) " +
+            "ORDER BY p.time DESC, p.id DESC")
+    List<PostSummary> findAllByTimeRangeBeforeTimeCursor(
+            LocalDateTime from, LocalDateTime to, ModerationStatusesEnum status, LocalDateTime time, Integer id,
+            Pageable pageable
+    );
+
+    @Query("select count(p) from Post p " +
+            "where p.time >= :from " +
+            "and p.time < :to " +
+            "and p.isActive = 1 " +
+            "and p.moderationStatus = :status")
+    Integer countByTimeRange(LocalDateTime from, LocalDateTime to, ModerationStatusesEnum status);
 
     Optional<Post> findByIdAndIsActiveAndModerationStatus(Integer id, Byte isActive, ModerationStatusesEnum status);
 
-    List<Post> findAllByModerationStatusAndModeratorAndIsActive(
+    @Query(SUMMARY +
+            "WHERE p.moderationStatus = :status " +
+            "AND p.moderator = :moderator " +
+            "AND p.isActive = :isActive")
+    List<PostSummary> findAllByModerationStatusAndModeratorAndIsActive(
             ModerationStatusesEnum status,
             User moderator,
             Byte isActive,
@@ -92,9 +162,21 @@ public interface PostsRepo extends CrudRepository<Post, Integer> {
     );
 
     List<Post> findAllByModerationStatusAndIsActive(ModerationStatusesEnum status, Byte isActive, Pageable pageable);
+
+    @Query(SUMMARY +
+            "WHERE p.moderationStatus = :status " +
+            "AND p.isActive = :isActive")
+    List<PostSummary> findSummariesByModerationStatusAndIsActive(
+            ModerationStatusesEnum status, Byte isActive, Pageable pageable
+    );
+
     Integer countAllByModerationStatusAndIsActive(ModerationStatusesEnum status, Byte isActive);
 
-    List<Post> findAllByModerationStatusAndIsActiveAndAuthorId(
+    @Query(SUMMARY +
+            "WHERE p.moderationStatus = :status " +
+            "AND p.isActive = :isActive " +
+            "AND a.id = :authorId")
+    List<PostSummary> findAllByModerationStatusAndIsActiveAndAuthorId(
             ModerationStatusesEnum status,
             Byte isActive,
             Integer authorId,
@@ -107,15 +189,27 @@ public interface PostsRepo extends CrudRepository<Post, Integer> {
             Integer authorId
     );
 
-    List<Post> findAllByIsActiveAndAuthorId(Byte isActive, Integer authorId, Pageable pageable);
+    @Query(SUMMARY +
+            "WHERE p.isActive = :isActive " +
+            "AND a.id = :authorId")
+    List<PostSummary> findAllByIsActiveAndAuthorId(Byte isActive, Integer authorId, Pageable pageable);
+
     Integer countAllByIsActiveAndAuthorId(Byte isActive, Integer authorId);
 
-    @Query(
-            "select p from Post p " +
+    @Query(SUMMARY +
             "join Post2Tag p2t on p2t.postId = p.id " +
             "join Tag t on t.id = p2t.tagId " +
-            "where t.name = :tagName")
-    List<Post> findAllByTag(String tagName, Pageable pageable);
+            "where t.name = :tagName " +
+            "order by p.time desc, p.id desc")
+    List<PostSummary> findAllByTag(String tagName, Pageable pageable);
+
+    @Query(SUMMARY +
+            "join Post2Tag p2t on p2t.postId = p.id " +
+            "join Tag t on t.id = p2t.tagId " +
+            "where t.name = :tagName " +
+            "and (p.time < :time or (p.time = :time and p.id < :id)) " +
+            "order by p.time desc, p.id desc")
+    List<PostSummary> findAllByTagBeforeTimeCursor(String tagName, LocalDateTime time, Integer id, Pageable pageable);
 
     @Query("select count(p) from Post p " +
             "join Post2Tag p2t on p2t.postId = p.id " +
@@ -127,47 +221,53 @@ public interface PostsRepo extends CrudRepository<Post, Integer> {
             Byte isActive, ModerationStatusesEnum status, LocalDateTime time
     );
 
+    @Query(value =
+            "SELECT " +
+            "SUM(CASE WHEN is_active = 1 AND moderation_status = 'ACCEPTED' AND time < now() THEN 1 ELSE 0 END), " +
+            "SUM(like_count), SUM(dislike_count), SUM(view_count), MIN(time) " +
+            "FROM posts", nativeQuery = true)
+    List<Object[]> aggregateStatistics();
 
+    @Query(value =
+            "SELECT user_id, count(*), SUM(like_count), SUM(dislike_count), SUM(view_count), MIN(time) " +
+            "FROM posts " +
+            "WHERE user_id IN (:authorIds) " +
+            "GROUP BY user_id", nativeQuery = true)
+    List<Object[]> aggregateStatisticsByAuthorIds(@Param("authorIds") Collection<Integer> authorIds);
 
-    Integer countPostsByAuthorId(Integer authorId);
-
-    @Query(
-            "select count(p) from Post p " +
-            "join PostVote pv on pv.postId = p.id " +
-            "where p.author.id = :authorId " +
-            "and pv.value = :value"
-    )
-    Integer countTotalVotesByAuthorIdAndValue(Integer authorId, Integer value);
-
-    @Query(
-            "select sum(p.viewCount) from Post p " +
-            "where p.author.id = :authorId"
-    )
-    Integer countViewCountByAuthorId(Integer authorId);
+    @Query(SUMMARY + "WHERE p.id IN :postIds")
+    List<PostSummary> findSummariesByIds(Collection<Integer> postIds);
 
-    @Query(
-            "select sum(p.viewCount) from Post p"
-    )
-    Integer countViewCount();
+    @Query("select p.id, p.author.id from Post p where p.id in :postIds")
+    List<Object[]> findAuthorIdsByPostIds(Collection<Integer> postIds);
 
-    @Query(
-            "select min(p.time) from Post p " +
-            "where p.author.id = :authorId")
-    Optional<LocalDateTime> findByAuthorIdFirstPublicationDate(Integer authorId);
+    Optional<Post> findByIdAndIsActive(Integer postId, Byte isActive);
 
     @Query("select min(p.time) from Post p")
-    Optional<LocalDateTime> findFirstPublicationDate();
+    LocalDateTime findMinTime();
 
-    Optional<Post> findByIdAndIsActive(Integer postId, Byte isActive);
+    @Query("select max(p.time) from Post p")
+    LocalDateTime findMaxTime();
 
-    @Query("select distinct year(p.time) from Post p")
-    List<Integer> findAllDistinctByTimeYear();
+    boolean existsByTimeGreaterThanEqualAndTimeLessThan(LocalDateTime from, LocalDateTime to);
 
     @Query(value =
-            "SELECT * FROM posts " +
-            "WHERE year(time) = :year " +
+            "SELECT DATE_FORMAT(time, '%Y-%m-%d') AS day, count(*) FROM posts " +
+            "WHERE time >= :from " +
+            "AND time < :to " +
             "AND is_active = 1 " +
             "AND moderation_status = 'ACCEPTED' " +
-            "AND time <= now()", nativeQuery = true)
-    List<Post> findAllByYear(@Param("year") Integer year);
+            "AND time <= now() " +
+            "GROUP BY day", nativeQuery = true)
+    List<Object[]> countByTimeRangeGroupByDay(@Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
+
+    @Query("select count(p) from Post p " +
+            "where p.time >= :from " +
+            "and p.time < :to " +
+            "and p.time <= :now " +
+            "and p.isActive = 1 " +
+            "and p.moderationStatus = :status")
+    Integer countPublishedByTimeRange(
+            LocalDateTime from, LocalDateTime to, LocalDateTime now, ModerationStatusesEnum status
+    );
 }
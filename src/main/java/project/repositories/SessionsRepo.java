@@ -0,0 +1,30 @@
+package project.repositories;
+
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.transaction.annotation.Transactional;
+import project.models.UserSession;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+public interface SessionsRepo extends CrudRepository<UserSession, String> {
+
+    Optional<UserSession> findBySessionIdAndExpiresAtAfter(String sessionId, LocalDateTime now);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE UserSession s SET s.expiresAt = :expiresAt WHERE s.sessionId = :sessionId")
+    void updateExpiresAt(String sessionId, LocalDateTime expiresAt);
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM UserSession s WHERE s.sessionId = :sessionId")
+    void deleteSession(String sessionId);
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM UserSession s WHERE s.expiresAt < :now")
+    void deleteExpired(LocalDateTime now);
+}
@@ -1,16 +1,28 @@
 package project.repositories;
 
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.CrudRepository;
 import project.models.Tag;
+import project.models.enums.ModerationStatusesEnum;
 
+import javax.persistence.QueryHint;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
-import java.util.Optional;
 
 public interface TagsRepo extends CrudRepository<Tag, Integer> {
     List<Tag> findAll();
 
-    List<Tag> findByNameStartingWith(String query);
+    @Query(
+            "select t.name, count(p.id) from Tag t " +
+            "left join Post2Tag p2t on p2t.tagId = t.id " +
+            "left join Post p on p.id = p2t.postId " +
+            "and p.isActive = 1 " +
+            "and p.moderationStatus = :status " +
+            "and p.time < :now " +
+            "group by t.id, t.name")
+    List<Object[]> countPublishedPostsByTag(ModerationStatusesEnum status, LocalDateTime now);
 
     @Query(
             "select t.name from Tag t " +
@@ -18,5 +30,6 @@ public interface TagsRepo extends CrudRepository<Tag, Integer> {
             "where p2t.postId = :postId")
     List<String> findAllByPostId(Integer postId);
 
-    Optional<Tag> findByName(String name);
+    @QueryHints(@QueryHint(name = "org.hibernate.cacheable", value = "true"))
+    List<Tag> findAllByNameIn(Collection<String> names);
 }
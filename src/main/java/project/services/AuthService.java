@@ -4,17 +4,35 @@ import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.web.context.request.RequestContextHolder;
-import project.models.CaptchaCode;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import org.springframework.web.util.WebUtils;
 import project.models.User;
+import project.services.sessions.SessionStore;
 
+import javax.servlet.http.Cookie;
+import javax.servlet.http.HttpServletRequest;
+import java.security.SecureRandom;
+import java.util.Base64;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Optional;
+
+import static org.springframework.web.context.request.RequestAttributes.SCOPE_REQUEST;
 
 @Service
 @RequiredArgsConstructor
 public class AuthService {
 
-    private final Map<String, Integer> authorizedUsers;
+    private static final String USER_ID_ATTRIBUTE = AuthService.class.getName() + ".userId";
+
+    private static final int SESSION_ID_BYTES = 32;
+
+    private final SessionStore sessionStore;
+
+    private final SecureRandom secureRandom = new SecureRandom();
+
+    @Value("${session.cookie.name}")
+    private String sessionCookieName;
 
     @Value("${name.max.length}")
     private Integer nameMaxLength;
@@ -24,7 +42,7 @@ public class AuthService {
 
     public Map<String, String> checkOnErrors(
             String password,
-            CaptchaCode captcha,
+            boolean captchaValid,
             User userByEmail,
             User userByRecoverCode,
             String name
@@ -43,7 +61,7 @@ public class AuthService {
             errors.put("password", "Пароль короче 6-ти символов");
         }
 
-        if (captcha == null) {
+        if (!captchaValid) {
             errors.put("captcha", "Код с картинки введён неверно");
         }
 
@@ -56,25 +74,70 @@ public class AuthService {
     }
 
     public Integer getUserIdBySession() {
-        String sessionId = RequestContextHolder.currentRequestAttributes().getSessionId();
-        return authorizedUsers.get(sessionId);
+        ServletRequestAttributes attributes = currentAttributes();
+
+        @SuppressWarnings("unchecked")
+        Optional<Integer> userId = (Optional<Integer>) attributes.getAttribute(USER_ID_ATTRIBUTE, SCOPE_REQUEST);
+
+        if (userId == null) {
+            String sessionId = getSessionId(attributes.getRequest());
+            userId = Optional.ofNullable(sessionId == null ? null : sessionStore.getUserId(sessionId));
+            attributes.setAttribute(USER_ID_ATTRIBUTE, userId, SCOPE_REQUEST);
+        }
+
+        return userId.orElse(null);
     }
 
     public Boolean checkAuthorization() {
-        String sessionId = RequestContextHolder.currentRequestAttributes().getSessionId();
-        Integer userId = authorizedUsers.get(sessionId);
-        return userId != null;
+        return getUserIdBySession() != null;
     }
 
     public void saveSession(Integer userId) {
-        String sessionId = RequestContextHolder.currentRequestAttributes().getSessionId();
-        authorizedUsers.put(sessionId, userId);
+        ServletRequestAttributes attributes = currentAttributes();
+
+        String previousSessionId = getSessionId(attributes.getRequest());
+        if (previousSessionId != null) {
+            sessionStore.remove(previousSessionId);
+        }
+
+        byte[] token = new byte[SESSION_ID_BYTES];
+        secureRandom.nextBytes(token);
+        String sessionId = Base64.getUrlEncoder().withoutPadding().encodeToString(token);
+
+        sessionStore.save(sessionId, userId);
+        attributes.setAttribute(USER_ID_ATTRIBUTE, Optional.of(userId), SCOPE_REQUEST);
+        attributes.getResponse().addCookie(createSessionCookie(sessionId, -1));
     }
 
     public void logout() {
-        String sessionId = RequestContextHolder.currentRequestAttributes().getSessionId();
-        authorizedUsers.remove(sessionId);
+        ServletRequestAttributes attributes = currentAttributes();
+
+        String sessionId = getSessionId(attributes.getRequest());
+        if (sessionId != null) {
+            sessionStore.remove(sessionId);
+        }
+
+        attributes.setAttribute(USER_ID_ATTRIBUTE, Optional.empty(), SCOPE_REQUEST);
+        attributes.getResponse().addCookie(createSessionCookie("", 0));
     }
 
+    /**
+     * id сессии из cookie или null для анонимного запроса
+     */
+    public String getSessionId(HttpServletRequest request) {
+        Cookie cookie = WebUtils.getCookie(request, sessionCookieName);
+        return cookie == null || cookie.getValue().isEmpty() ? null : cookie.getValue();
+    }
 
+    private Cookie createSessionCookie(String value, int maxAge) {
+        Cookie cookie = new Cookie(sessionCookieName, value);
+        cookie.setPath("/");
+        cookie.setHttpOnly(true);
+        cookie.setMaxAge(maxAge);
+        return cookie;
+    }
+
+    private ServletRequestAttributes currentAttributes() {
+        return (ServletRequestAttributes) RequestContextHolder.currentRequestAttributes();
+    }
 }
@@ -0,0 +1,153 @@
+package project.services;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import project.dto.CalendarDto;
+import project.events.PostChangedEvent;
+import project.models.enums.ModerationStatusesEnum;
+import project.repositories.PostsRepo;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+/**
+ * Календарь публикаций: количество постов по дням года считается одним запросом и кэшируется по годам.
+ * Публикация и модерация пересчитывают только затронутые дни, а весь год перечитывается раз в calendar.cache.ttl
+ * (чтобы учесть отложенные посты, время публикации которых наступило).
+ * Все запросы фильтруют по диапазону time, поэтому идут по индексу, а не по date(time) и year(time)
+ */
+@Service
+@RequiredArgsConstructor
+public class CalendarService {
+
+    private static final DateTimeFormatter DAY_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd");
+
+    private final PostsRepo postsRepo;
+
+    private final ConcurrentMap<Integer, YearHistogram> histograms = new ConcurrentHashMap<>();
+
+    private final Set<Integer> years = new ConcurrentSkipListSet<>();
+
+    private volatile boolean yearsLoaded;
+
+    @Value("${calendar.cache.ttl}")
+    private Long cacheTtl;
+
+    public CalendarDto getCalendarDto(Integer year) {
+        if (year == null) {
+            year = LocalDate.now().getYear();
+        }
+
+        if (!yearsLoaded) {
+            loadYears();
+        }
+
+        // в годах без постов публикаций нет; такие годы не кэшируются, иначе любой ?year= расширял бы кэш
+        if (!years.contains(year)) {
+            return new CalendarDto(new ArrayList<>(years), new TreeMap<>());
+        }
+
+        YearHistogram histogram = histograms.get(year);
+        if (histogram == null || histogram.isExpired(cacheTtl)) {
+            histogram = loadHistogram(year);
+            histograms.put(year, histogram);
+        }
+
+        return new CalendarDto(new ArrayList<>(years), new TreeMap<>(histogram.days));
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onPostChanged(PostChangedEvent event) {
+        LocalDateTime time = event.getPost().getTime();
+        LocalDateTime previousTime = event.getPreviousTime();
+
+        if (yearsLoaded) {
+            years.add(time.getYear());
+            if (previousTime != null && previousTime.getYear() != time.getYear()) {
+                refreshYear(previousTime.getYear());
+            }
+        }
+
+        if (previousTime != null) {
+            refreshDay(previousTime);
+        }
+        refreshDay(time);
+    }
+
+    /**
+     * Годы с публикациями: границы берутся из индекса по time, каждый год между ними проверяется
+     * одним exists-запросом вместо полного прохода по таблице
+     */
+    private synchronized void loadYears() {
+        if (yearsLoaded) {
+            return;
+        }
+
+        LocalDateTime min = postsRepo.findMinTime();
+        LocalDateTime max = postsRepo.findMaxTime();
+        if (min != null && max != null) {
+            for (int year = min.getYear(); year <= max.getYear(); year++) {
+                refreshYear(year);
+            }
+        }
+        yearsLoaded = true;
+    }
+
+    private void refreshYear(int year) {
+        LocalDateTime from = LocalDate.of(year, 1, 1).atStartOfDay();
+        if (postsRepo.existsByTimeGreaterThanEqualAndTimeLessThan(from, from.plusYears(1))) {
+            years.add(year);
+        } else {
+            years.remove(year);
+            histograms.remove(year);
+        }
+    }
+
+    private void refreshDay(LocalDateTime time) {
+        YearHistogram histogram = histograms.get(time.getYear());
+        if (histogram == null) {
+            return;
+        }
+
+        String day = time.format(DAY_FORMAT);
+        LocalDateTime from = time.toLocalDate().atStartOfDay();
+        Integer count = postsRepo.countPublishedByTimeRange(
+                from, from.plusDays(1), LocalDateTime.now(), ModerationStatusesEnum.ACCEPTED);
+        if (count == 0) {
+            histogram.days.remove(day);
+        } else {
+            histogram.days.put(day, count);
+        }
+    }
+
+    private YearHistogram loadHistogram(Integer year) {
+        YearHistogram histogram = new YearHistogram();
+        LocalDateTime from = LocalDate.of(year, 1, 1).atStartOfDay();
+        postsRepo.countByTimeRangeGroupByDay(from, from.plusYears(1)).forEach(row ->
+                histogram.days.put((String) row[0], ((Number) row[1]).intValue()));
+        return histogram;
+    }
+
+    private static class YearHistogram {
+
+        private final Map<String, Integer> days = new ConcurrentSkipListMap<>();
+
+        private final long loadedAt = System.currentTimeMillis();
+
+        private boolean isExpired(long ttl) {
+            return System.currentTimeMillis() - loadedAt > ttl;
+        }
+    }
+}
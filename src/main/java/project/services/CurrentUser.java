@@ -0,0 +1,38 @@
+package project.services;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.annotation.RequestScope;
+import project.models.User;
+
+/**
+ * Текущий авторизованный пользователь: загружается из БД не более одного раза за запрос
+ */
+@Component
+@RequestScope
+@RequiredArgsConstructor
+public class CurrentUser {
+
+    private final AuthService authService;
+
+    private final UserService userService;
+
+    private User user;
+
+    private boolean loaded;
+
+    /**
+     * Пользователь текущей сессии или null для анонимного запроса
+     */
+    public User getUser() {
+        if (!loaded) {
+            user = userService.findUserById(authService.getUserIdBySession());
+            loaded = true;
+        }
+        return user;
+    }
+
+    public Integer getId() {
+        return authService.getUserIdBySession();
+    }
+}
@@ -1,46 +1,25 @@
 package project.services;
 
-import lombok.SneakyThrows;
-import lombok.extern.slf4j.Slf4j;
-import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.beans.factory.annotation.Value;
-import org.springframework.mail.javamail.JavaMailSender;
-import org.springframework.mail.javamail.MimeMessageHelper;
+import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
+import project.models.OutboxMail;
+import project.repositories.MailOutboxRepo;
 
-import javax.mail.internet.MimeMessage;
+import java.time.LocalDateTime;
 
 /**
- * Для отправки почты воспользуемся классом JavaMailSender, для конфигурирования которого создадми класс MailConfig
+ * Письма не отправляются в потоке запроса: они сохраняются в таблицу mail_outbox,
+ * откуда их забирает MailOutboxWorker
  */
 
 @Service
-@Slf4j
+@RequiredArgsConstructor
 public class EmailServiceImpl implements EmailService {
 
-    private final JavaMailSender mailSender;
+    private final MailOutboxRepo mailOutboxRepo;
 
-
-
-    @Autowired
-    public EmailServiceImpl(JavaMailSender mailSender) {
-        this.mailSender = mailSender;
-    }
-
-    @Value("${spring.mail.username}")
-    private String userName;
-
-    @SneakyThrows
     @Override
     public void send(String mailTo, String subject, String text) {
-        MimeMessage mimeMessage = mailSender.createMimeMessage();
-
-        MimeMessageHelper message = new MimeMessageHelper(mimeMessage, true, "UTF-8");
-        message.setFrom(userName);
-        message.setTo(mailTo);
-        message.setSubject(subject);
-        message.setText(text, true);
-
-        mailSender.send(mimeMessage);
+        mailOutboxRepo.save(new OutboxMail(mailTo, subject, text, LocalDateTime.now()));
     }
 }
@@ -1,54 +1,89 @@
 package project.services;
 
-import lombok.AllArgsConstructor;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import project.events.SettingsChangedEvent;
 import project.models.GlobalSetting;
 import project.models.enums.GlobalSettingsEnum;
 import project.repositories.GlobalSettingsRepo;
+import project.services.settings.SettingsInvalidationChannel;
 
 import javax.annotation.PostConstruct;
+import java.util.Collections;
+import java.util.EnumMap;
 import java.util.List;
+import java.util.Map;
 
+/**
+ * Глобальные настройки читаются из неизменяемого снимка в памяти, БД - только при запуске и изменении настроек.
+ * Другие экземпляры приложения узнают об изменении через SettingsInvalidationChannel
+ */
+@Slf4j
 @Service
-@AllArgsConstructor
+@RequiredArgsConstructor
 public class GlobalSettingsService {
 
     private final GlobalSettingsRepo globalSettingsRepo;
 
+    private final SettingsInvalidationChannel invalidationChannel;
+
+    private final ApplicationEventPublisher eventPublisher;
+
+    private volatile Map<GlobalSettingsEnum, Boolean> snapshot;
+
     @PostConstruct
     public void init() {
         List<GlobalSetting> exist = globalSettingsRepo.findAll();
 
-        if (exist.size() == 0) {
-            exist.add(new GlobalSetting(
-                    GlobalSettingsEnum.MULTIUSER_MODE,
-                    "Многопользовательский режим",
-                    "YES"
-            ));
-            exist.add(new GlobalSetting(
-                    GlobalSettingsEnum.POST_PREMODERATION,
-                    "Премодерация постов",
-                    "YES"
-            ));
-            exist.add(new GlobalSetting(
-                    GlobalSettingsEnum.STATISTICS_IS_PUBLIC,
-                    "Показывать всем статистику блога",
-                    "YES"
-            ));
-
-            saveSettings(exist);
+        for (GlobalSettingsEnum code : GlobalSettingsEnum.values()) {
+            if (exist.stream().noneMatch(setting -> setting.getCode() == code)) {
+                globalSettingsRepo.save(new GlobalSetting(code, code.getCodeName(), "YES"));
+            }
         }
+
+        reload();
+        invalidationChannel.subscribe(() -> {
+            reload();
+            eventPublisher.publishEvent(new SettingsChangedEvent());
+        });
+    }
+
+    public boolean isEnabled(GlobalSettingsEnum code) {
+        return snapshot.get(code);
     }
 
-    public List<GlobalSetting> findAll() {
-        return globalSettingsRepo.findAll();
+    public Map<GlobalSettingsEnum, Boolean> getSettings() {
+        return snapshot;
     }
 
-    public void saveSettings(List<GlobalSetting> settings) {
-        settings.forEach(globalSettingsRepo::save);
+    public void saveSettings(Map<GlobalSettingsEnum, Boolean> settings) {
+        for (GlobalSetting setting : globalSettingsRepo.findAll()) {
+            Boolean value = settings.get(setting.getCode());
+            if (value != null) {
+                setting.setValue(value ? "YES" : "NO");
+                globalSettingsRepo.save(setting);
+            }
+        }
+
+        reload();
+        invalidationChannel.publish();
+        eventPublisher.publishEvent(new SettingsChangedEvent());
     }
 
-    public GlobalSetting getGlobalSettingByCode(GlobalSettingsEnum code) {
-        return globalSettingsRepo.findByCode(code).orElse(null);
+    /**
+     * Страховка на случай потерянного оповещения: снимок периодически перечитывается из БД
+     */
+    @Scheduled(initialDelayString = "${settings.reload.delay}", fixedDelayString = "${settings.reload.delay}")
+    public void reload() {
+        Map<GlobalSettingsEnum, Boolean> settings = new EnumMap<>(GlobalSettingsEnum.class);
+        for (GlobalSettingsEnum code : GlobalSettingsEnum.values()) {
+            settings.put(code, true);
+        }
+        globalSettingsRepo.findAll().forEach(setting -> settings.put(setting.getCode(), setting.getValue().equals("YES")));
+
+        snapshot = Collections.unmodifiableMap(settings);
     }
 }
@@ -1,20 +1,101 @@
 package project.services;
 
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.imgscalr.Scalr;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.multipart.MultipartFile;
+import project.controllers.exceptions.BadRequestException;
+import project.models.ImageBlob;
+import project.repositories.ImageBlobsRepo;
+import project.services.blobs.BlobStore;
 
-import javax.transaction.Transactional;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
 import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigInteger;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
+/**
+ * Загрузка изображений: оригинал сохраняется в потоке запроса, а уменьшенные копии (renditions из image.renditions)
+ * строятся в фоне ограниченным пулом потоков. Пока копия не готова, по её адресу отдаётся оригинал.
+ * Файлы хранятся в BlobStore по хэшу содержимого (aa/bb/hash.type) со счётчиком ссылок в image_blobs
+ */
+@Slf4j
 @Service
-@Transactional
+@RequiredArgsConstructor
 public class ImageService {
 
+    private static final Pattern RENDITION_NAME = Pattern.compile("^(.+)_([a-z]+)\\.(\\w+)$");
+
+    private final ImageBlobsRepo imageBlobsRepo;
+
+    private final BlobStore blobStore;
+
+    private final TransactionTemplate transactionTemplate;
+
     @Value("${upload.path}")
     private String location;
 
+    @Value("${image.renditions}")
+    private String renditionsConfig;
+
+    @Value("${image.pipeline.workers}")
+    private Integer workers;
+
+    @Value("${image.pipeline.queue}")
+    private Integer queueCapacity;
+
+    @Value("${image.gc.grace}")
+    private Long gcGrace;
+
+    private final Map<String, Rendition> renditions = new LinkedHashMap<>();
+
+    private final Set<String> inProgress = ConcurrentHashMap.newKeySet();
+
+    private ThreadPoolTaskExecutor executor;
+
+    @PostConstruct
+    public void initPipeline() {
+        for (String config : renditionsConfig.split(",")) {
+            String[] parts = config.trim().split(":");
+            renditions.put(parts[0], new Rendition(parts[0], Integer.valueOf(parts[1]), Scalr.Method.valueOf(parts[2])));
+        }
+
+        executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(workers);
+        executor.setMaxPoolSize(workers);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("image-pipeline-");
+        executor.initialize();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+
     public void init() {
         try {
             Files.createDirectories(Paths.get(location));
@@ -22,4 +103,204 @@ public class ImageService {
             throw new RuntimeException("Could not initialize storage", e);
         }
     }
+
+    /**
+     * Сохраняет оригинал и ставит в очередь построение всех копий.
+     * Файл адресуется SHA-256 содержимого: повторная загрузка того же изображения только увеличивает счётчик ссылок.
+     * Возвращает постоянный адрес копии rendition
+     */
+    public String saveImage(MultipartFile image, String rendition) throws IOException {
+        if (!renditions.containsKey(rendition)) {
+            throw new IllegalArgumentException("Unknown image rendition " + rendition);
+        }
+
+        String contentType = image.getContentType();
+        String type = contentType == null ? "" : contentType.replaceFirst("^image/", "");
+        if (!ImageIO.getImageWritersByFormatName(type).hasNext()) {
+            throw new BadRequestException("Неподдерживаемый формат изображения");
+        }
+
+        Path tmp = Files.createTempFile(Paths.get(location), "upload", ".tmp");
+        try {
+            String hash = copyAndHash(image, tmp);
+            String originalKey = blobKey(hash, type);
+
+            // после addReference строка со ссылкой закоммичена, и сборщик мусора (на любом узле) файл уже не удалит;
+            // если сборщик удаляет этот же хэш прямо сейчас, upsert ждёт его коммита и файл загружается заново
+            imageBlobsRepo.addReference(hash, type);
+            try {
+                if (!blobStore.exists(originalKey)) {
+                    blobStore.put(originalKey, tmp, contentType);
+                }
+            } catch (IOException | RuntimeException e) {
+                // иначе строка с ненулевым счётчиком ссылалась бы на несохранённый файл и никогда не собиралась
+                imageBlobsRepo.releaseReference(hash, LocalDateTime.now());
+                throw e;
+            }
+
+            renditions.values().forEach(r -> submit(originalKey, r, type));
+
+            return "/" + location + renditionKey(originalKey, rendition, type);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    /**
+     * Снимает ссылку на изображение по адресу любой из его копий.
+     * Файлы без ссылок удаляются сборщиком мусора через image.gc.grace после освобождения
+     */
+    public void releaseImage(String url) {
+        String key = url.replaceFirst("^/" + Pattern.quote(location), "");
+        Matcher matcher = RENDITION_NAME.matcher(key);
+        if (!matcher.matches()) {
+            blobStore.delete(key);
+            return;
+        }
+
+        String base = matcher.group(1);
+        String type = matcher.group(3);
+        String hash = base.substring(base.lastIndexOf('/') + 1);
+        if (imageBlobsRepo.releaseReference(hash, LocalDateTime.now()) == 0) {
+            // изображение загружено до перехода на хранение по хэшу
+            deleteWithRenditions(base + "." + type, type);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${image.gc.delay}")
+    public void collectGarbage() {
+        LocalDateTime cutoff = LocalDateTime.now().minusNanos(gcGrace * 1000000);
+        int deleted = 0;
+
+        for (ImageBlob blob : imageBlobsRepo.findAllByRefCountAndReleasedAtBefore(0, cutoff)) {
+            // условный DELETE держит блокировку строки до конца транзакции: addReference с другого узла
+            // дождётся удаления файлов, а если ссылка появилась раньше, строка не удалится и файлы останутся
+            Boolean removed = transactionTemplate.execute(status -> {
+                if (imageBlobsRepo.deleteUnreferenced(blob.getHash(), cutoff) == 0) {
+                    return false;
+                }
+                deleteWithRenditions(blobKey(blob.getHash(), blob.getType()), blob.getType());
+                return true;
+            });
+            if (Boolean.TRUE.equals(removed)) {
+                deleted++;
+            }
+        }
+
+        if (deleted > 0) {
+            log.info("Image garbage collection removed {} blobs", deleted);
+        }
+    }
+
+    /**
+     * Ключ оригинала для ещё не построенной копии: до готовности копии вместо неё отдаётся оригинал.
+     * Если копия не строится (например, очередь была переполнена), её построение ставится в очередь заново
+     */
+    public String getPlaceholder(String key) {
+        Matcher matcher = RENDITION_NAME.matcher(key);
+        if (!matcher.matches() || !renditions.containsKey(matcher.group(2))) {
+            return null;
+        }
+
+        String type = matcher.group(3);
+        String originalKey = matcher.group(1) + "." + type;
+        if (!blobStore.exists(originalKey)) {
+            return null;
+        }
+
+        submit(originalKey, renditions.get(matcher.group(2)), type);
+        return originalKey;
+    }
+
+    private void deleteWithRenditions(String originalKey, String type) {
+        blobStore.delete(originalKey);
+        renditions.keySet().forEach(name -> blobStore.delete(renditionKey(originalKey, name, type)));
+    }
+
+    private String copyAndHash(MultipartFile image, Path target) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+
+        try (InputStream in = new DigestInputStream(image.getInputStream(), digest)) {
+            Files.copy(in, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+        return String.format("%064x", new BigInteger(1, digest.digest()));
+    }
+
+    private String blobKey(String hash, String type) {
+        return String.format("%s/%s/%s.%s", hash.substring(0, 2), hash.substring(2, 4), hash, type);
+    }
+
+    private String renditionKey(String originalKey, String rendition, String type) {
+        return originalKey.substring(0, originalKey.length() - type.length() - 1) + "_" + rendition + "." + type;
+    }
+
+    private void submit(String originalKey, Rendition rendition, String type) {
+        String targetKey = renditionKey(originalKey, rendition.getName(), type);
+        if (!inProgress.add(targetKey)) {
+            return;
+        }
+
+        try {
+            executor.execute(() -> {
+                try {
+                    if (!blobStore.exists(targetKey)) {
+                        resize(originalKey, targetKey, rendition, type);
+                    }
+                } finally {
+                    inProgress.remove(targetKey);
+                }
+            });
+        } catch (TaskRejectedException e) {
+            inProgress.remove(targetKey);
+            log.warn("Image pipeline is busy, rendition {} postponed", targetKey);
+        }
+    }
+
+    private void resize(String originalKey, String targetKey, Rendition rendition, String type) {
+        Path tmp = null;
+        try {
+            BufferedImage bufferedImage;
+            try (InputStream in = blobStore.open(originalKey)) {
+                bufferedImage = in == null ? null : ImageIO.read(in);
+            }
+            if (bufferedImage == null) {
+                log.warn("Could not decode image {}", originalKey);
+                return;
+            }
+
+            BufferedImage newImage = bufferedImage;
+            if (bufferedImage.getWidth() > rendition.getWidth()) {
+                int newHeight = (int) Math.round(
+                        bufferedImage.getHeight() / (bufferedImage.getWidth() / (double) rendition.getWidth()));
+                newImage = Scalr.resize(bufferedImage, rendition.getMethod(), rendition.getWidth(), newHeight);
+            }
+
+            // пишем во временный файл, чтобы недописанная копия не попала в выдачу
+            tmp = Files.createTempFile(Paths.get(location), "rendition", ".tmp");
+            ImageIO.write(newImage, type, tmp.toFile());
+            blobStore.put(targetKey, tmp, "image/" + type);
+        } catch (IOException e) {
+            log.error("Could not build rendition {}", targetKey, e);
+        } finally {
+            if (tmp != null) {
+                tmp.toFile().delete();
+            }
+        }
+    }
+
+    @Getter
+    @AllArgsConstructor
+    private static class Rendition {
+
+        private final String name;
+
+        private final Integer width;
+
+        private final Scalr.Method method;
+    }
 }
@@ -1,8 +1,11 @@
 package project.services;
 
 import lombok.AllArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import project.dto.AddCommentDto;
+import project.events.PostCommentedEvent;
 import project.models.PostComment;
 import project.repositories.PostsCommentsRepo;
 
@@ -15,9 +18,9 @@ public class PostCommentService {
 
     private final PostsCommentsRepo postsCommentsRepo;
 
-    public Integer countByPostId(Integer postId) {
-        return postsCommentsRepo.countByPostId(postId);
-    }
+    private final PostService postService;
+
+    private final ApplicationEventPublisher eventPublisher;
 
     public List<PostComment> findAllByPostId(Integer postId) {
         return postsCommentsRepo.findAllByPostId(postId);
@@ -27,6 +30,7 @@ public class PostCommentService {
         return postsCommentsRepo.findById(id).orElse(null);
     }
 
+    @Transactional
     public Integer saveComment(AddCommentDto addCommentDto, Integer authorId) {
         PostComment postComment = new PostComment(
                 addCommentDto.getParentId(),
@@ -36,6 +40,10 @@ public class PostCommentService {
                 addCommentDto.getText()
         );
 
-        return postsCommentsRepo.save(postComment).getId();
+        Integer commentId = postsCommentsRepo.save(postComment).getId();
+        postService.updateCommentCount(postComment.getPostId(), 1);
+        eventPublisher.publishEvent(new PostCommentedEvent(postComment.getPostId()));
+
+        return commentId;
     }
 }
@@ -0,0 +1,81 @@
+package project.services;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import project.repositories.PostsRepo;
+
+import javax.annotation.PreDestroy;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Ручной пересчёт денормализованных счётчиков постов по таблицам голосов и комментариев
+ * (запускается модератором через POST /api/admin/counters/repair).
+ * Посты обрабатываются диапазонами id по post.counters.repair.batch, каждый диапазон - отдельной короткой транзакцией,
+ * так что блокируется только текущая пачка строк, а не вся таблица
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class PostCountersService {
+
+    private final PostsRepo postsRepo;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+
+    @Value("${post.counters.repair.batch}")
+    private Integer batchSize;
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Запускает пересчёт в фоне; false, если пересчёт уже идёт
+     */
+    public boolean startRepair() {
+        if (!running.compareAndSet(false, true)) {
+            return false;
+        }
+
+        executor.execute(() -> {
+            try {
+                repairCounters();
+            } catch (RuntimeException e) {
+                log.error("Post counters repair failed", e);
+            } finally {
+                running.set(false);
+            }
+        });
+        return true;
+    }
+
+    private void repairCounters() {
+        Integer maxId = postsRepo.findMaxId();
+        if (maxId == null) {
+            return;
+        }
+
+        int updated = 0;
+        for (int fromId = 1; fromId <= maxId; fromId += batchSize) {
+            int toId = fromId + batchSize - 1;
+            int from = fromId;
+            Integer batchUpdated = transactionTemplate.execute(status -> {
+                postsRepo.lockRange(from, toId);
+                return postsRepo.rebuildCounters(from, toId);
+            });
+            updated += batchUpdated == null ? 0 : batchUpdated;
+        }
+
+        log.info("Post counters rebuilt, {} posts updated", updated);
+    }
+}
@@ -0,0 +1,61 @@
+package project.services;
+
+import project.controllers.exceptions.BadRequestException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Base64;
+
+/**
+ * Курсор keyset-пагинации: ключ сортировки последнего поста страницы (время, счётчик или релевантность) и его id
+ */
+public class PostCursor {
+
+    private final long key;
+
+    private final int id;
+
+    public PostCursor(long key, int id) {
+        this.key = key;
+        this.id = id;
+    }
+
+    public PostCursor(LocalDateTime time, int id) {
+        this(time.toEpochSecond(ZoneOffset.UTC), id);
+    }
+
+    public static PostCursor ofScore(float score, int id) {
+        return new PostCursor(Float.floatToIntBits(score), id);
+    }
+
+    public static PostCursor decode(String cursor) {
+        try {
+            String[] parts = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split(":");
+            return new PostCursor(Long.parseLong(parts[0]), Integer.parseInt(parts[1]));
+        } catch (IllegalArgumentException | ArrayIndexOutOfBoundsException e) {
+            throw new BadRequestException("Некорректный курсор");
+        }
+    }
+
+    public String encode() {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString((key + ":" + id).getBytes(StandardCharsets.UTF_8));
+    }
+
+    public LocalDateTime getTime() {
+        return LocalDateTime.ofEpochSecond(key, 0, ZoneOffset.UTC);
+    }
+
+    public int getCount() {
+        return (int) key;
+    }
+
+    public float getScore() {
+        return Float.intBitsToFloat((int) key);
+    }
+
+    public int getId() {
+        return id;
+    }
+}
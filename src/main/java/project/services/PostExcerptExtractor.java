@@ -0,0 +1,138 @@
+package project.services;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Видимый текст HTML: анонс поста (первые announce.length символов) и полный текст для поискового индекса.
+ * Текст читается за один проход без регулярных выражений, разбор прекращается, как только анонс набран
+ */
+@Component
+public class PostExcerptExtractor {
+
+    @Value("${announce.length}")
+    private Integer announceLength;
+
+    public String extract(String html) {
+        return extract(html, announceLength);
+    }
+
+    /**
+     * Весь видимый текст без ограничения длины
+     */
+    public String extractText(String html) {
+        return extract(html, Integer.MAX_VALUE);
+    }
+
+    private String extract(String html, int limit) {
+        if (html == null) {
+            return "";
+        }
+
+        StringBuilder excerpt = new StringBuilder(Math.min(limit, html.length()));
+        boolean space = false;
+        int i = 0;
+        int length = html.length();
+
+        while (i < length && excerpt.length() < limit) {
+            int c = html.codePointAt(i);
+            int next = i + Character.charCount(c);
+
+            if (c == '<') {
+                i = skipTag(html, i);
+                space = true;
+                continue;
+            }
+
+            if (c == '&') {
+                int end = html.indexOf(';', i);
+                if (end > i && end - i <= 10) {
+                    int decoded = decodeEntity(html.substring(i + 1, end));
+                    if (decoded != -1) {
+                        c = decoded;
+                        next = end + 1;
+                    }
+                }
+            }
+            i = next;
+
+            if (Character.isWhitespace(c) || c == '\u00A0') {
+                space = true;
+                continue;
+            }
+
+            int width = (space && excerpt.length() > 0 ? 1 : 0) + Character.charCount(c);
+            if (excerpt.length() + width > limit) {
+                // суррогатная пара не разрезается на границе анонса
+                break;
+            }
+            if (width > Character.charCount(c)) {
+                excerpt.append(' ');
+            }
+            space = false;
+            excerpt.appendCodePoint(c);
+        }
+
+        return excerpt.toString();
+    }
+
+    /**
+     * Позиция сразу после тега, открытого в start; кавычки в значениях атрибутов учитываются
+     */
+    private int skipTag(String html, int start) {
+        char quote = 0;
+        for (int i = start + 1; i < html.length(); i++) {
+            char c = html.charAt(i);
+            if (quote != 0) {
+                if (c == quote) {
+                    quote = 0;
+                }
+            } else if (c == '"' || c == '\'') {
+                quote = c;
+            } else if (c == '>') {
+                return i + 1;
+            }
+        }
+        return html.length();
+    }
+
+    /**
+     * Код символа для именованной или числовой ссылки без & и ;, либо -1, если ссылка не распознана
+     */
+    private int decodeEntity(String entity) {
+        switch (entity) {
+            case "nbsp":
+                return ' ';
+            case "amp":
+                return '&';
+            case "lt":
+                return '<';
+            case "gt":
+                return '>';
+            case "quot":
+                return '"';
+            case "apos":
+                return '\'';
+            default:
+                break;
+        }
+
+        int codePoint;
+        try {
+            if (entity.startsWith("#x") || entity.startsWith("#X")) {
+                codePoint = Integer.parseInt(entity.substring(2), 16);
+            } else if (entity.startsWith("#")) {
+                codePoint = Integer.parseInt(entity.substring(1));
+            } else {
+                return -1;
+            }
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+        if (codePoint <= 0 || !Character.isValidCodePoint(codePoint)
+                || Character.getType(codePoint) == Character.SURROGATE) {
+            return -1;
+        }
+        return codePoint;
+    }
+}
@@ -0,0 +1,61 @@
+package project.services;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import project.dto.PostDto;
+import project.dto.PostUserDto;
+import project.models.Post;
+import project.repositories.PostSummary;
+
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import static java.util.stream.Collectors.toList;
+
+/**
+ * Сборка ленты постов из проекций PostSummary: автор, анонс и счётчики приходят тем же запросом, что и страница
+ */
+@Service
+@RequiredArgsConstructor
+public class PostFeedService {
+
+    private final ViewCountService viewCountService;
+
+    private final PostExcerptExtractor excerptExtractor;
+
+    public List<PostDto> getPostDtoList(List<PostSummary> postList) {
+        return postList.stream().map(this::getPostDto).collect(toList());
+    }
+
+    public PostDto getPostDto(Post post) {
+        return getPostDto(new PostSummary(
+                post.getId(),
+                post.getTime(),
+                post.getAuthor().getId(),
+                post.getAuthor().getName(),
+                post.getTitle(),
+                post.getExcerpt() != null ? post.getExcerpt() : excerptExtractor.extract(post.getText()),
+                post.getLikeCount(),
+                post.getDislikeCount(),
+                post.getCommentCount(),
+                post.getViewCount()
+        ));
+    }
+
+    private PostDto getPostDto(PostSummary post) {
+        Integer postId = post.getId();
+
+        return new PostDto(
+                postId,
+                post.getTime().atZone(ZoneId.systemDefault()).withZoneSameInstant(ZoneOffset.UTC).toEpochSecond(),
+                new PostUserDto(post.getAuthorId(), post.getAuthorName()),
+                post.getTitle(),
+                post.getExcerpt() != null ? post.getExcerpt() : "",
+                post.getLikeCount(),
+                post.getDislikeCount(),
+                post.getCommentCount(),
+                (int) (post.getViewCount() + viewCountService.getPendingViews(postId))
+        );
+    }
+}
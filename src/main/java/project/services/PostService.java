@@ -1,31 +1,51 @@
 package project.services;
 
 import lombok.AllArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
-import project.dto.CalendarDto;
+import project.controllers.exceptions.BadRequestException;
 import project.dto.PostPublishDto;
+import project.events.PostChangedEvent;
 import project.models.Post;
 import project.models.User;
 import project.models.enums.ModerationStatusesEnum;
+import project.repositories.OffsetPageRequest;
+import project.repositories.PostSummary;
 import project.repositories.PostsRepo;
 
 import java.time.Instant;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.ZoneId;
-import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.TreeMap;
+import java.util.Objects;
+import java.util.stream.Collectors;
 
 
+@Slf4j
 @Service
 @AllArgsConstructor
 public class PostService {
 
+    private static final int EXCERPT_BATCH_SIZE = 500;
+
     private final PostsRepo postsRepo;
 
+    private final ViewCountService viewCountService;
+
+    private final PostExcerptExtractor excerptExtractor;
+
+    private final ApplicationEventPublisher eventPublisher;
+
     public Integer addPost(PostPublishDto postPublishDto, User author, Boolean premoderation) {
 
         LocalDateTime publishDate = LocalDateTime.ofInstant(
@@ -47,15 +67,22 @@ public class PostService {
                 0
         );
 
+        post.setExcerpt(excerptExtractor.extract(post.getText()));
+
         if (!premoderation) {
             post.setModerationStatus(ModerationStatusesEnum.ACCEPTED);
         }
 
-        return postsRepo.save(post).getId();
+        post = postsRepo.save(post);
+        eventPublisher.publishEvent(new PostChangedEvent(post, null, false));
+
+        return post.getId();
     }
 
     public Integer editPost(PostPublishDto postPublishDto, User editor, Integer postId, Boolean premoderation) {
         Post postFromDb = findPostById(postId);
+        LocalDateTime previousTime = postFromDb.getTime();
+        boolean previouslyPublished = PostChangedEvent.isPublished(postFromDb);
 
         LocalDateTime publishDate = LocalDateTime.ofInstant(
                 Instant.ofEpochSecond(postPublishDto.getTimestamp()),
@@ -70,6 +97,7 @@ public class PostService {
         postFromDb.setIsActive(postPublishDto.getActive());
         postFromDb.setTitle(postPublishDto.getTitle());
         postFromDb.setText(postPublishDto.getText());
+        postFromDb.setExcerpt(excerptExtractor.extract(postPublishDto.getText()));
 
         if (editor.getIsModerator() == 0) {
             postFromDb.setModerationStatus(ModerationStatusesEnum.NEW);
@@ -79,71 +107,115 @@ public class PostService {
             postFromDb.setModerationStatus(ModerationStatusesEnum.ACCEPTED);
         }
 
-        return postsRepo.save(postFromDb).getId();
+        postFromDb = postsRepo.save(postFromDb);
+        eventPublisher.publishEvent(new PostChangedEvent(postFromDb, previousTime, previouslyPublished));
+
+        return postFromDb.getId();
     }
 
-    public void savePost(Post post) {
-        postsRepo.save(post);
+    /**
+     * Заполняет анонсы постов, сохранённых до появления колонки excerpt
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void fillMissingExcerpts() {
+        int filled = 0;
+        List<Post> batch;
+        do {
+            batch = postsRepo.findAllByExcerptIsNull(PageRequest.of(0, EXCERPT_BATCH_SIZE));
+            batch.forEach(post -> post.setExcerpt(excerptExtractor.extract(post.getText())));
+            postsRepo.saveAll(batch);
+            filled += batch.size();
+        } while (batch.size() == EXCERPT_BATCH_SIZE);
+
+        if (filled > 0) {
+            log.info("Filled excerpts for {} posts", filled);
+        }
     }
 
-    public Post findPostById(Integer postId) {
-        return postsRepo.findById(postId).orElse(null);
+    public void moderatePost(Post post, ModerationStatusesEnum status, User moderator) {
+        boolean previouslyPublished = PostChangedEvent.isPublished(post);
+
+        post.setModerationStatus(status);
+        post.setModerator(moderator);
+
+        post = postsRepo.save(post);
+        eventPublisher.publishEvent(new PostChangedEvent(post, post.getTime(), previouslyPublished));
     }
 
-    public List<Integer> findPublicationYears() {
-        return postsRepo.findAllDistinctByTimeYear();
+    public void updateVoteCounts(Integer postId, Integer likeDelta, Integer dislikeDelta) {
+        postsRepo.updateVoteCounts(postId, likeDelta, dislikeDelta);
     }
 
-    public CalendarDto getCalendarDto(Integer year) {
-        List<Integer> yearsWithPublications = findPublicationYears();
+    public void updateCommentCount(Integer postId, Integer delta) {
+        postsRepo.updateCommentCount(postId, delta);
+    }
+
+    public Post findPostById(Integer postId) {
+        return postsRepo.findById(postId).orElse(null);
+    }
 
-        List<Post> postList = postsRepo.findAllByYear(year);
+    /**
+     * Посты в порядке переданных id
+     */
+    public List<PostSummary> findPostsByIds(List<Integer> postIds) {
+        if (postIds.isEmpty()) {
+            return Collections.emptyList();
+        }
 
-        Map<String, Integer> postMap = new TreeMap<>();
-        postList.forEach(post -> {
-            String postDate = post.getTime().format(DateTimeFormatter.ofPattern("yyyy-MM-dd"));
-            Integer postCount = countPostsByDate(postDate);
-            postMap.put(postDate, postCount);
-        });
+        Map<Integer, PostSummary> posts = new HashMap<>();
+        postsRepo.findSummariesByIds(postIds).forEach(post -> posts.put(post.getId(), post));
 
-        return new CalendarDto(yearsWithPublications, postMap);
+        return postIds.stream()
+                .map(posts::get)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
     }
 
-    public List<Post> getPostsBySort(String mode, Integer offset, Integer limit) {
-        List<Post> postList = null;
+    public List<PostSummary> getPostsBySort(String mode, Integer offset, Integer limit) {
+        List<PostSummary> postList = null;
 
         switch (mode) {
             case "recent":
-                postList = postsRepo.findAllByTimeBeforeAndIsActiveAndModerationStatus(
+                postList = postsRepo.findAllPublished(
                         LocalDateTime.now(),
-                        (byte) 1,
                         ModerationStatusesEnum.ACCEPTED,
-                        PageRequest.of(
-                                offset / limit,
+                        OffsetPageRequest.of(
+                                offset,
                                 limit,
-                                Sort.by(Sort.Direction.DESC, "time")
+                                Sort.by(Sort.Direction.DESC, "time", "id")
                         )
                 );
                 break;
             case "popular":
-                postList = postsRepo.findAllByModerationStatusAndIsActiveAndCommentsCount(
-                        ModerationStatusesEnum.ACCEPTED, (byte) 1, PageRequest.of(offset / limit, limit)
+                postList = postsRepo.findAllPublished(
+                        LocalDateTime.now(),
+                        ModerationStatusesEnum.ACCEPTED,
+                        OffsetPageRequest.of(
+                                offset,
+                                limit,
+                                Sort.by(Sort.Direction.DESC, "commentCount", "id")
+                        )
                 );
                 break;
             case "best":
-                postList = postsRepo.findAllByModerationStatusAndIsActiveAndLikesCount(
-                        ModerationStatusesEnum.ACCEPTED, (byte) 1, PageRequest.of(offset / limit, limit)
+                postList = postsRepo.findAllPublished(
+                        LocalDateTime.now(),
+                        ModerationStatusesEnum.ACCEPTED,
+                        OffsetPageRequest.of(
+                                offset,
+                                limit,
+                                Sort.by(Sort.Direction.DESC, "likeCount", "id")
+                        )
                 );
                 break;
             case "early":
-                postList = postsRepo.findAllByTimeBeforeAndIsActiveAndModerationStatus(
+                postList = postsRepo.findAllPublished(
                         LocalDateTime.now(),
-                        (byte) 1,
                         ModerationStatusesEnum.ACCEPTED,
-                        PageRequest.of(
-                                offset / limit,
+                        OffsetPageRequest.of(
+                                offset,
                                 limit,
-                                Sort.by(Sort.Direction.ASC, "time")
+                                Sort.by(Sort.Direction.ASC, "time", "id")
                         )
                 );
                 break;
@@ -152,6 +224,63 @@ public class PostService {
         return postList;
     }
 
+    public List<PostSummary> getPostsBySortAfter(String mode, String cursor, Integer limit) {
+        if (cursor.isEmpty()) {
+            return getPostsBySort(mode, 0, limit);
+        }
+
+        PostCursor after = PostCursor.decode(cursor);
+        List<PostSummary> postList = null;
+
+        switch (mode) {
+            case "recent":
+                postList = postsRepo.findAllPublishedBeforeTimeCursor(
+                        LocalDateTime.now(), ModerationStatusesEnum.ACCEPTED,
+                        after.getTime(), after.getId(), PageRequest.of(0, limit)
+                );
+                break;
+            case "popular":
+                postList = postsRepo.findAllPublishedBeforeCommentCountCursor(
+                        LocalDateTime.now(), ModerationStatusesEnum.ACCEPTED,
+                        after.getCount(), after.getId(), PageRequest.of(0, limit)
+                );
+                break;
+            case "best":
+                postList = postsRepo.findAllPublishedBeforeLikeCountCursor(
+                        LocalDateTime.now(), ModerationStatusesEnum.ACCEPTED,
+                        after.getCount(), after.getId(), PageRequest.of(0, limit)
+                );
+                break;
+            case "early":
+                postList = postsRepo.findAllPublishedAfterTimeCursor(
+                        LocalDateTime.now(), ModerationStatusesEnum.ACCEPTED,
+                        after.getTime(), after.getId(), PageRequest.of(0, limit)
+                );
+                break;
+        }
+
+        return postList;
+    }
+
+    /**
+     * Курсор следующей страницы ленты или null, если страница последняя
+     */
+    public String getNextCursor(String mode, List<PostSummary> postList, Integer limit) {
+        if (postList == null || postList.size() < limit) {
+            return null;
+        }
+
+        PostSummary last = postList.get(postList.size() - 1);
+        switch (mode) {
+            case "popular":
+                return new PostCursor(last.getCommentCount(), last.getId()).encode();
+            case "best":
+                return new PostCursor(last.getLikeCount(), last.getId()).encode();
+            default:
+                return new PostCursor(last.getTime(), last.getId()).encode();
+        }
+    }
+
     public Post getPostByIdAndModerationStatus(Integer postId, User user) {
 
         Post post;
@@ -178,49 +307,87 @@ public class PostService {
                     return post;
                 }
             }
-            post.setViewCount(post.getViewCount() + 1);
-            postsRepo.updateViewCount(post.getId(), post.getViewCount());
+            viewCountService.registerView(post.getId());
         }
         return post;
     }
 
-    public List<Post> getPostsByDate(String date, Integer offset, Integer limit) {
-        return postsRepo.findAllByTime_DateAndIsActiveAndModerationStatus(
-                date, PageRequest.of(offset / limit, limit));
+    public List<PostSummary> getPostsByDate(String date, Integer offset, Integer limit) {
+        LocalDateTime from = parseDay(date);
+        return postsRepo.findAllByTimeRange(
+                from, from.plusDays(1), ModerationStatusesEnum.ACCEPTED, OffsetPageRequest.of(offset, limit));
+    }
+
+    public List<PostSummary> getPostsByDateAfter(String date, String cursor, Integer limit) {
+        if (cursor.isEmpty()) {
+            return getPostsByDate(date, 0, limit);
+        }
+
+        PostCursor after = PostCursor.decode(cursor);
+        LocalDateTime from = parseDay(date);
+        return postsRepo.findAllByTimeRangeBeforeTimeCursor(
+                from,
+                from.plusDays(1),
+                ModerationStatusesEnum.ACCEPTED,
+                after.getTime(),
+                after.getId(),
+                PageRequest.of(0, limit)
+        );
     }
 
     public Integer countPostsByDate(String date) {
-        return postsRepo.countByTime(date);
+        LocalDateTime from = parseDay(date);
+        return postsRepo.countByTimeRange(from, from.plusDays(1), ModerationStatusesEnum.ACCEPTED);
     }
 
-    public List<Post> findPostsByTag(String tag, Integer offset, Integer limit) {
-        return postsRepo.findAllByTag(tag, PageRequest.of(offset / limit, limit));
+    /**
+     * Начало дня из параметра date (yyyy-MM-dd)
+     */
+    private LocalDateTime parseDay(String date) {
+        try {
+            return LocalDate.parse(date).atStartOfDay();
+        } catch (DateTimeParseException e) {
+            throw new BadRequestException("Некорректная дата");
+        }
+    }
+
+    public List<PostSummary> findPostsByTag(String tag, Integer offset, Integer limit) {
+        return postsRepo.findAllByTag(tag, OffsetPageRequest.of(offset, limit));
+    }
+
+    public List<PostSummary> findPostsByTagAfter(String tag, String cursor, Integer limit) {
+        if (cursor.isEmpty()) {
+            return findPostsByTag(tag, 0, limit);
+        }
+
+        PostCursor after = PostCursor.decode(cursor);
+        return postsRepo.findAllByTagBeforeTimeCursor(tag, after.getTime(), after.getId(), PageRequest.of(0, limit));
     }
 
     public Integer countPostsByTag(String tag) {
         return postsRepo.countAllByTag(tag);
     }
 
-    public List<Post> getPostsByNeedModeration(String status, User moderator, Integer offset, Integer limit) {
-        List<Post> postList = null;
+    public List<PostSummary> getPostsByNeedModeration(String status, User moderator, Integer offset, Integer limit) {
+        List<PostSummary> postList = null;
 
         switch (status) {
             case "new":
-                postList = postsRepo.findAllByModerationStatusAndIsActive(
+                postList = postsRepo.findSummariesByModerationStatusAndIsActive(
                         ModerationStatusesEnum.NEW, (byte) 1,
-                        PageRequest.of(offset / limit, limit)
+                        OffsetPageRequest.of(offset, limit)
                 );
                 break;
             case "declined":
                 postList = postsRepo.findAllByModerationStatusAndModeratorAndIsActive(
                         ModerationStatusesEnum.DECLINED, moderator, (byte) 1,
-                        PageRequest.of(offset / limit, limit)
+                        OffsetPageRequest.of(offset, limit)
                 );
                 break;
             case "accepted":
                 postList = postsRepo.findAllByModerationStatusAndModeratorAndIsActive(
                         ModerationStatusesEnum.ACCEPTED, moderator, (byte) 1,
-                        PageRequest.of(offset / limit, limit)
+                        OffsetPageRequest.of(offset, limit)
                 );
                 break;
         }
@@ -250,48 +417,27 @@ public class PostService {
         return count;
     }
 
-    public List<Post> findPostsByQuery(String query, Integer offset, Integer limit) {
-        return postsRepo.findAllByTitleContainingOrTextContainingAndTimeBeforeAndIsActiveAndModerationStatus(
-                query,
-                query,
-                LocalDateTime.now(),
-                (byte) 1,
-                ModerationStatusesEnum.ACCEPTED,
-                PageRequest.of(offset / limit, limit)
-        );
-    }
-
-    public Integer countPostsByQuery(String query) {
-        return postsRepo.countAllByTitleContainingOrTextContainingAndTimeBeforeAndIsActiveAndModerationStatus(
-                query,
-                query,
-                LocalDateTime.now(),
-                (byte) 1,
-                ModerationStatusesEnum.ACCEPTED
-        );
-    }
-
-    public List<Post> getMyPostsByStatus(Integer userId, String status, Integer offset, Integer limit) {
-        List<Post> postList = null;
+    public List<PostSummary> getMyPostsByStatus(Integer userId, String status, Integer offset, Integer limit) {
+        List<PostSummary> postList = null;
         switch (status) {
             case "inactive":
                 postList = postsRepo.findAllByIsActiveAndAuthorId(
-                        (byte) 0, userId, PageRequest.of(offset / limit, limit)
+                        (byte) 0, userId, OffsetPageRequest.of(offset, limit)
                 );
                 break;
             case "pending":
                 postList = postsRepo.findAllByModerationStatusAndIsActiveAndAuthorId(
-                        ModerationStatusesEnum.NEW, (byte) 1, userId, PageRequest.of(offset / limit, limit)
+                        ModerationStatusesEnum.NEW, (byte) 1, userId, OffsetPageRequest.of(offset, limit)
                 );
                 break;
             case "declined":
                 postList = postsRepo.findAllByModerationStatusAndIsActiveAndAuthorId(
-                        ModerationStatusesEnum.DECLINED, (byte) 1, userId, PageRequest.of(offset / limit, limit)
+                        ModerationStatusesEnum.DECLINED, (byte) 1, userId, OffsetPageRequest.of(offset, limit)
                 );
                 break;
             case "published":
                 postList = postsRepo.findAllByModerationStatusAndIsActiveAndAuthorId(
-                        ModerationStatusesEnum.ACCEPTED, (byte) 1, userId, PageRequest.of(offset / limit, limit)
+                        ModerationStatusesEnum.ACCEPTED, (byte) 1, userId, OffsetPageRequest.of(offset, limit)
                 );
                 break;
         }
@@ -334,30 +480,4 @@ public class PostService {
         return postsRepo.countByIsActiveAndModerationStatusAndTimeBefore(
                 (byte) 1, ModerationStatusesEnum.ACCEPTED, LocalDateTime.now());
     }
-
-
-
-    public Integer countPostsByAuthorId(Integer authorId) {
-        return postsRepo.countPostsByAuthorId(authorId);
-    }
-
-    public Integer countTotalVoteCountByAuhtorIdAndValue(Integer authorId, Integer value) {
-        return postsRepo.countTotalVotesByAuthorIdAndValue(authorId, value);
-    }
-
-    public Integer countViewCountByAuthorId(Integer authorId) {
-        return postsRepo.countViewCountByAuthorId(authorId);
-    }
-
-    public Integer countViewCount() {
-        return postsRepo.countViewCount();
-    }
-
-    public LocalDateTime findByAuhtorIdFirstPublicationDate(Integer authorId) {
-        return postsRepo.findByAuthorIdFirstPublicationDate(authorId).orElse(null);
-    }
-
-    public LocalDateTime findFirstPublicationDate() {
-        return postsRepo.findFirstPublicationDate().orElse(null);
-    }
 }
@@ -1,36 +1,75 @@
 package project.services;
 
 import lombok.AllArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import project.dto.ResultTrueFalseDto;
-import project.models.PostVote;
-import project.repositories.PostsVotesRepo;
+import project.events.PostVotedEvent;
 
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.sql.Timestamp;
 import java.time.LocalDateTime;
-import java.util.Optional;
+import java.util.List;
+import java.util.Map;
 
+/**
+ * Голосование одним запросом INSERT ... ON DUPLICATE KEY UPDATE по уникальному ключу (post_id, user_id).
+ * Повторный голос тем же значением снимает голос (value = 0).
+ * Прежнее значение возвращается тем же запросом через LAST_INSERT_ID(выражение) со сдвигом +2,
+ * чтобы отличить его от id новой строки по числу затронутых строк: 1 - вставка, 2 - обновление
+ */
 @Service
 @AllArgsConstructor
 public class PostVoteService {
 
-    private final PostsVotesRepo postsVotesRepo;
+    private static final String UPSERT_SQL =
+            "INSERT INTO post_votes (post_id, user_id, time, value) VALUES (?, ?, ?, ?) " +
+            "ON DUPLICATE KEY UPDATE " +
+            "value = IF(LAST_INSERT_ID(value + 2) - 2 = VALUES(value), 0, VALUES(value)), " +
+            "time = VALUES(time)";
 
+    private final JdbcTemplate jdbcTemplate;
+
+    private final PostService postService;
+
+    private final ApplicationEventPublisher eventPublisher;
+
+    @Transactional
     public ResultTrueFalseDto votePost(Integer postId, Integer userId, Integer value) {
-        Optional<PostVote> exist = postsVotesRepo.findByPostIdAndUserId(postId, userId);
-        if (exist.isPresent()) {
-            postsVotesRepo.updatePostVoteByPostIdAndUserId(postId, userId, value);
+        KeyHolder keyHolder = new GeneratedKeyHolder();
+        int rows = jdbcTemplate.update(connection -> {
+            PreparedStatement statement = connection.prepareStatement(UPSERT_SQL, Statement.RETURN_GENERATED_KEYS);
+            statement.setInt(1, postId);
+            statement.setInt(2, userId);
+            statement.setTimestamp(3, Timestamp.valueOf(LocalDateTime.now()));
+            statement.setInt(4, value);
+            return statement;
+        }, keyHolder);
+
+        int oldValue;
+        if (rows == 1) {
+            oldValue = 0;
+        } else if (rows == 2) {
+            List<Map<String, Object>> keys = keyHolder.getKeyList();
+            if (keys.isEmpty()) {
+                throw new IllegalStateException("Vote upsert for post " + postId + " returned no previous value");
+            }
+            oldValue = ((Number) keys.get(0).values().iterator().next()).intValue() - 2;
         } else {
-            postsVotesRepo.save(new PostVote(userId, postId, LocalDateTime.now(), value));
+            throw new IllegalStateException("Vote upsert for post " + postId + " affected " + rows + " rows");
         }
+        int newValue = oldValue == value ? 0 : value;
 
-        return new ResultTrueFalseDto(true);
-    }
-
-    public Integer countVotesByPostIdAndValue(Integer postId, Integer value) {
-        return postsVotesRepo.countByPostIdAndValue(postId, value);
-    }
+        int likeDelta = (newValue == 1 ? 1 : 0) - (oldValue == 1 ? 1 : 0);
+        int dislikeDelta = (newValue == -1 ? 1 : 0) - (oldValue == -1 ? 1 : 0);
+        postService.updateVoteCounts(postId, likeDelta, dislikeDelta);
+        eventPublisher.publishEvent(new PostVotedEvent(postId, likeDelta, dislikeDelta));
 
-    public Integer countVotesByValue(Integer value) {
-        return postsVotesRepo.countPostVotesByValue(value);
+        return new ResultTrueFalseDto(true);
     }
 }
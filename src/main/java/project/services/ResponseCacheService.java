@@ -0,0 +1,123 @@
+package project.services;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import project.events.*;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+/**
+ * Кэш готовых ответов для анонимных GET-запросов (лента, пост, теги, календарь, init, настройки).
+ * Ограничен суммарным размером тел ответов (вытеснение W-TinyLFU), живёт response.cache.ttl
+ * и точечно сбрасывается событиями изменения постов, голосов, комментариев, тегов и настроек.
+ * Сброс выполняется после коммита, чтобы параллельный запрос не закэшировал ещё не зафиксированное состояние
+ */
+@Service
+public class ResponseCacheService {
+
+    private final Cache<Key, CachedResponse> responses;
+
+    public ResponseCacheService(@Value("${response.cache.max-size}") Long maxSize,
+                                @Value("${response.cache.ttl}") Long ttl) {
+        this.responses = Caffeine.newBuilder()
+                .maximumWeight(maxSize)
+                .weigher((Key key, CachedResponse response) -> response.getBody().length + key.getUri().length())
+                .expireAfterWrite(ttl, TimeUnit.MILLISECONDS)
+                .build();
+    }
+
+    public CachedResponse get(Key key) {
+        return responses.getIfPresent(key);
+    }
+
+    public void put(Key key, CachedResponse response) {
+        responses.put(key, response);
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onPostChanged(PostChangedEvent event) {
+        invalidate(key -> key.getGroup() != Group.INIT && key.getGroup() != Group.SETTINGS);
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onPostVoted(PostVotedEvent event) {
+        invalidatePost(event.getPostId(), "best");
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onPostCommented(PostCommentedEvent event) {
+        invalidatePost(event.getPostId(), "popular");
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onTagsChanged(TagsChangedEvent event) {
+        invalidate(key -> key.getGroup() == Group.TAGS || key.getGroup() == Group.POST_LIST
+                || event.getPostId().equals(key.getPostId()));
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onSettingsChanged(SettingsChangedEvent event) {
+        invalidate(key -> key.getGroup() == Group.SETTINGS);
+    }
+
+    /**
+     * Сбрасывает сам пост и ленту, порядок которой зависит от изменившегося счётчика.
+     * Счётчики в остальных списках обновятся по истечении response.cache.ttl
+     */
+    private void invalidatePost(Integer postId, String mode) {
+        invalidate(key -> postId.equals(key.getPostId())
+                || key.getGroup() == Group.POST_LIST && mode.equals(key.getMode()));
+    }
+
+    private void invalidate(Predicate<Key> predicate) {
+        responses.asMap().keySet().removeIf(predicate);
+    }
+
+    public enum Group {
+        POST_LIST, POST, TAGS, CALENDAR, INIT, SETTINGS
+    }
+
+    @Getter
+    @EqualsAndHashCode
+    @AllArgsConstructor
+    public static class Key {
+
+        private final Group group;
+
+        /**
+         * id поста для Group.POST, иначе null
+         */
+        private final Integer postId;
+
+        /**
+         * Режим сортировки ленты /api/post, иначе null
+         */
+        private final String mode;
+
+        /**
+         * Путь и отсортированные параметры запроса
+         */
+        private final String uri;
+    }
+
+    @Getter
+    @AllArgsConstructor
+    public static class CachedResponse {
+
+        private final String contentType;
+
+        private final byte[] body;
+
+        private final String etag;
+
+        private final long lastModified;
+    }
+}
@@ -0,0 +1,173 @@
+package project.services;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import project.dto.StatisticsDto;
+import project.events.PostChangedEvent;
+import project.events.PostVotedEvent;
+import project.events.ViewsFlushedEvent;
+import project.repositories.PostsRepo;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Статистика блога и авторов хранится в памяти и обновляется приращениями по событиям голосования, просмотров и публикации.
+ * Раз в statistics.reconcile.delay значения сверяются с БД (в том числе, чтобы учесть наступившие отложенные посты)
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class StatisticsService {
+
+    private final PostsRepo postsRepo;
+
+    private final AtomicReference<Statistics> global = new AtomicReference<>();
+
+    private final ConcurrentMap<Integer, Statistics> authors = new ConcurrentHashMap<>();
+
+    public StatisticsDto getStatistics() {
+        Statistics statistics = global.get();
+        if (statistics == null) {
+            statistics = loadGlobal();
+        }
+        return statistics.toDto();
+    }
+
+    public StatisticsDto getAuthorStatistics(Integer authorId) {
+        Statistics statistics = authors.get(authorId);
+        if (statistics == null) {
+            statistics = loadAuthors(Collections.singleton(authorId)).getOrDefault(authorId, Statistics.EMPTY);
+            authors.putIfAbsent(authorId, statistics);
+        }
+        return statistics.toDto();
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onPostChanged(PostChangedEvent event) {
+        long publishedDelta = (event.isPublished() ? 1 : 0) - (event.isPreviouslyPublished() ? 1 : 0);
+        LocalDateTime time = event.getPost().getTime();
+        global.updateAndGet(s -> s == null ? null : s.addPosts(publishedDelta, time));
+
+        // в статистике автора учитываются все его посты, поэтому счётчик растёт только при создании.
+        // Перенос самой ранней публикации на более позднее время поправит reconcile
+        long createdDelta = event.getPreviousTime() == null ? 1 : 0;
+        authors.computeIfPresent(event.getPost().getAuthor().getId(), (id, s) -> s.addPosts(createdDelta, time));
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onPostVoted(PostVotedEvent event) {
+        global.updateAndGet(s -> s == null ? null : s.add(event.getLikeDelta(), event.getDislikeDelta(), 0));
+
+        if (!authors.isEmpty()) {
+            findAuthorIds(Collections.singleton(event.getPostId())).forEach((postId, authorId) ->
+                    authors.computeIfPresent(authorId, (id, s) -> s.add(event.getLikeDelta(), event.getDislikeDelta(), 0)));
+        }
+    }
+
+    @EventListener
+    public void onViewsFlushed(ViewsFlushedEvent event) {
+        long total = event.getViews().values().stream().mapToLong(Long::longValue).sum();
+        global.updateAndGet(s -> s == null ? null : s.add(0, 0, total));
+
+        if (!authors.isEmpty()) {
+            findAuthorIds(event.getViews().keySet()).forEach((postId, authorId) ->
+                    authors.computeIfPresent(authorId, (id, s) -> s.add(0, 0, event.getViews().get(postId))));
+        }
+    }
+
+    @Scheduled(initialDelayString = "${statistics.reconcile.delay}", fixedDelayString = "${statistics.reconcile.delay}")
+    public void reconcile() {
+        loadGlobal();
+
+        Set<Integer> authorIds = new HashSet<>(authors.keySet());
+        if (!authorIds.isEmpty()) {
+            Map<Integer, Statistics> loaded = loadAuthors(authorIds);
+            authorIds.stream().filter(id -> !loaded.containsKey(id)).forEach(authors::remove);
+        }
+        log.debug("Statistics reconciled, {} authors cached", authorIds.size());
+    }
+
+    private Statistics loadGlobal() {
+        Object[] row = postsRepo.aggregateStatistics().get(0);
+        Statistics statistics = new Statistics(toLong(row[0]), toLong(row[1]), toLong(row[2]), toLong(row[3]), toTime(row[4]));
+        global.set(statistics);
+        return statistics;
+    }
+
+    private Map<Integer, Statistics> loadAuthors(Collection<Integer> authorIds) {
+        Map<Integer, Statistics> loaded = new HashMap<>();
+        postsRepo.aggregateStatisticsByAuthorIds(authorIds).forEach(row -> loaded.put(
+                (Integer) row[0],
+                new Statistics(toLong(row[1]), toLong(row[2]), toLong(row[3]), toLong(row[4]), toTime(row[5]))
+        ));
+        authors.putAll(loaded);
+        return loaded;
+    }
+
+    private Map<Integer, Integer> findAuthorIds(Collection<Integer> postIds) {
+        Map<Integer, Integer> authorIds = new HashMap<>();
+        postsRepo.findAuthorIdsByPostIds(postIds).forEach(row -> authorIds.put((Integer) row[0], (Integer) row[1]));
+        return authorIds;
+    }
+
+    private long toLong(Object value) {
+        return value == null ? 0 : ((Number) value).longValue();
+    }
+
+    private LocalDateTime toTime(Object value) {
+        if (value instanceof Timestamp) {
+            return ((Timestamp) value).toLocalDateTime();
+        }
+        return (LocalDateTime) value;
+    }
+
+    @Getter
+    @AllArgsConstructor
+    private static class Statistics {
+
+        private static final Statistics EMPTY = new Statistics(0, 0, 0, 0, null);
+
+        private final long postsCount;
+
+        private final long likesCount;
+
+        private final long dislikesCount;
+
+        private final long viewsCount;
+
+        private final LocalDateTime firstPublication;
+
+        private Statistics add(long likes, long dislikes, long views) {
+            return new Statistics(postsCount, likesCount + likes, dislikesCount + dislikes, viewsCount + views, firstPublication);
+        }
+
+        private Statistics addPosts(long posts, LocalDateTime time) {
+            LocalDateTime first = firstPublication == null || time.isBefore(firstPublication) ? time : firstPublication;
+            return new Statistics(postsCount + posts, likesCount, dislikesCount, viewsCount, first);
+        }
+
+        private StatisticsDto toDto() {
+            return new StatisticsDto(
+                    (int) postsCount,
+                    (int) likesCount,
+                    (int) dislikesCount,
+                    (int) viewsCount,
+                    firstPublication == null ? 0 : firstPublication.atZone(ZoneId.systemDefault()).withZoneSameInstant(ZoneOffset.UTC).toEpochSecond()
+            );
+        }
+    }
+}
@@ -0,0 +1,166 @@
+package project.services;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import project.dto.TagDto;
+import project.events.PostChangedEvent;
+import project.events.TagsChangedEvent;
+import project.models.enums.ModerationStatusesEnum;
+import project.repositories.TagsRepo;
+
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Облако тегов: частоты всех тегов считаются одним запросом, веса нормализуются один раз,
+ * результат хранится неизменяемым снимком до публикации/модерации поста, изменения тегов или истечения tag.cloud.ttl
+ */
+@Service
+@RequiredArgsConstructor
+public class TagCloudService {
+
+    private final TagsRepo tagsRepo;
+
+    private final PostService postService;
+
+    private final AtomicLong generation = new AtomicLong();
+
+    private volatile TagCloud cloud;
+
+    @Value("${tag.cloud.ttl}")
+    private Long cloudTtl;
+
+    /**
+     * Теги по убыванию веса; query - необязательный префикс имени.
+     * Пустой список, если тегов нет, null - если у опубликованных постов нет тегов
+     */
+    public List<TagDto> getTags(String query) {
+        TagCloud current = getCloud();
+        if (current.tags == null) {
+            return null;
+        }
+        return query == null ? current.tags : current.findByPrefix(query);
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onPostChanged(PostChangedEvent event) {
+        invalidate();
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onTagsChanged(TagsChangedEvent event) {
+        invalidate();
+    }
+
+    private void invalidate() {
+        generation.incrementAndGet();
+        cloud = null;
+    }
+
+    private TagCloud getCloud() {
+        TagCloud current = cloud;
+        if (current == null || current.isExpired(cloudTtl)) {
+            long buildGeneration = generation.get();
+            current = build();
+            if (generation.get() == buildGeneration) {
+                cloud = current;
+            }
+        }
+        return current;
+    }
+
+    private TagCloud build() {
+        List<Object[]> rows = tagsRepo.countPublishedPostsByTag(ModerationStatusesEnum.ACCEPTED, LocalDateTime.now());
+        Integer postTotalCount = postService.countPosts();
+
+        List<TagDto> tags = new ArrayList<>();
+        rows.forEach(row -> tags.add(new TagDto(
+                (String) row[0],
+                postTotalCount == 0 ? 0f : ((Number) row[1]).floatValue() / postTotalCount
+        )));
+        tags.sort(Comparator.comparing(TagDto::getWeight).reversed());
+
+        return new TagCloud(setWeights(tags));
+    }
+
+    /**
+     * Самый частый тег получает вес 1, редкие теги масштабируются относительно него, но не ниже 0.3
+     */
+    private List<TagDto> setWeights(List<TagDto> tagDtoList) {
+        if (tagDtoList.isEmpty()) {
+            return tagDtoList;
+        }
+
+        Float biggestWeight = tagDtoList.get(0).getWeight();
+        if (biggestWeight <= 0.0) {
+            return null;
+        }
+
+        tagDtoList.get(0).setWeight(1f);
+
+        float multiplicationCoefficient = 1 / biggestWeight;
+        tagDtoList.forEach(tagDto -> {
+            Float tagWeight = tagDto.getWeight();
+            if (tagWeight < 0.3 && tagWeight != 0) {
+                tagWeight *= multiplicationCoefficient;
+
+                if (tagWeight < 0.3) {
+                    tagWeight = 0.3f;
+                }
+                tagDto.setWeight(tagWeight);
+            }
+        });
+
+        return tagDtoList;
+    }
+
+    private static class TagCloud {
+
+        /**
+         * Теги по убыванию веса
+         */
+        private final List<TagDto> tags;
+
+        /**
+         * Имена тегов в нижнем регистре, отсортированные для поиска по префиксу, и теги в том же порядке
+         */
+        private final String[] names;
+
+        private final TagDto[] tagsByName;
+
+        private final long builtAt = System.currentTimeMillis();
+
+        private TagCloud(List<TagDto> tags) {
+            this.tags = tags == null ? null : Collections.unmodifiableList(tags);
+
+            TagDto[] sorted = tags == null ? new TagDto[0] : tags.toArray(new TagDto[0]);
+            Arrays.sort(sorted, Comparator.comparing(tag -> tag.getName().toLowerCase()));
+            this.tagsByName = sorted;
+            this.names = Arrays.stream(sorted).map(tag -> tag.getName().toLowerCase()).toArray(String[]::new);
+        }
+
+        private List<TagDto> findByPrefix(String query) {
+            String prefix = query.toLowerCase();
+            int from = Arrays.binarySearch(names, prefix);
+            if (from < 0) {
+                from = -from - 1;
+            }
+
+            List<TagDto> found = new ArrayList<>();
+            for (int i = from; i < names.length && names[i].startsWith(prefix); i++) {
+                found.add(tagsByName[i]);
+            }
+            found.sort(Comparator.comparing(TagDto::getWeight).reversed());
+
+            return found;
+        }
+
+        private boolean isExpired(long ttl) {
+            return System.currentTimeMillis() - builtAt > ttl;
+        }
+    }
+}
@@ -1,13 +1,20 @@
 package project.services;
 
 import lombok.AllArgsConstructor;
+import org.hibernate.query.NativeQuery;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
-import project.dto.TagDto;
+import org.springframework.transaction.annotation.Transactional;
+import project.events.TagsChangedEvent;
+import project.models.Post2Tag;
 import project.models.Tag;
+import project.repositories.Post2TagRepo;
 import project.repositories.TagsRepo;
 
-import java.util.ArrayList;
-import java.util.List;
+import javax.persistence.EntityManager;
+import java.util.*;
+
+import static java.util.stream.Collectors.toSet;
 
 @Service
 @AllArgsConstructor
@@ -15,68 +22,79 @@ public class TagService {
 
     private final TagsRepo tagsRepo;
 
-    public List<Tag> findAllTags() {
-        return tagsRepo.findAll();
-    }
-
-    public List<Tag> findByStartsWith(String query) {
-        return tagsRepo.findByNameStartingWith(query);
-    }
+    private final Post2TagRepo post2TagRepo;
 
-    public List<Integer> findIdsByNames(List<String> tagNames) {
-       List<Integer> tagIds = new ArrayList<>();
-       tagNames.forEach(tagName -> {
-            Tag exist = tagsRepo.findByName(tagName).orElse(null);
+    private final EntityManager entityManager;
 
-            if (exist != null) {
-                tagIds.add(exist.getId());
-            }
-       });
-
-       return tagIds;
-    }
+    private final ApplicationEventPublisher eventPublisher;
 
     public List<String> findAllByPostId(Integer postId) {
         return tagsRepo.findAllByPostId(postId);
     }
 
-    public List<Integer> saveTags(List<String> tagNamesNew, Integer postId) {
-        List<Integer> tagIds = new ArrayList<>();
-
-        for (String tagName : tagNamesNew) {
-            Tag exist = tagsRepo.findByName(tagName).orElse(null);
-
-            if (exist == null) {
-                exist = tagsRepo.save(new Tag(tagName));
+    /**
+     * Приводит теги поста к списку tagNames за фиксированное число запросов независимо от количества тегов:
+     * имена ищутся одним IN-запросом, недостающие теги добавляются одним INSERT IGNORE,
+     * связи добавляются и удаляются разностью множеств
+     */
+    @Transactional
+    public void syncPostTags(Integer postId, Collection<String> tagNames) {
+        Set<String> names = new LinkedHashSet<>(tagNames);
+
+        Set<Integer> tagIds = new HashSet<>();
+        if (!names.isEmpty()) {
+            Set<String> missing = new LinkedHashSet<>(names);
+            for (Tag tag : tagsRepo.findAllByNameIn(names)) {
+                tagIds.add(tag.getId());
+                missing.remove(tag.getName());
             }
 
-            tagIds.add(exist.getId());
+            if (!missing.isEmpty()) {
+                // IGNORE: тег мог быть создан параллельной публикацией
+                executeInsert("INSERT IGNORE INTO tags (name) VALUES ", 1, missing, Tag.class);
+                tagsRepo.findAllByNameIn(missing).forEach(tag -> tagIds.add(tag.getId()));
+            }
         }
 
-        return tagIds;
-    }
-
-    public List<TagDto> setWeights(List<TagDto> tagDtoList) {
-        Float biggestWeight = tagDtoList.get(0).getWeight();
-        if (biggestWeight <= 0.0) {
-            return null;
-        }
+        Set<Integer> linkedIds = post2TagRepo.findTagIdsByPostId(postId);
 
-        tagDtoList.get(0).setWeight(1f);
+        Set<Integer> toDelete = linkedIds.stream().filter(id -> !tagIds.contains(id)).collect(toSet());
+        List<Object> toInsert = new ArrayList<>();
+        tagIds.stream().filter(id -> !linkedIds.contains(id)).forEach(id -> {
+            toInsert.add(postId);
+            toInsert.add(id);
+        });
 
-        float multiplicationCoefficient = 1/biggestWeight;
-        tagDtoList.forEach(tagDto -> {
-            Float tagWeight = tagDto.getWeight();
-            if (tagWeight < 0.3 && tagWeight != 0) {
-                tagWeight *= multiplicationCoefficient;
+        if (!toDelete.isEmpty()) {
+            post2TagRepo.deleteByPostIdAndTagIdIn(postId, toDelete);
+        }
+        if (!toInsert.isEmpty()) {
+            executeInsert("INSERT IGNORE INTO post2tag (post_id, tag_id) VALUES ", 2, toInsert, Post2Tag.class);
+        }
 
-                if (tagWeight < 0.3) {
-                    tagWeight = 0.3f;
-                }
-                tagDto.setWeight(tagWeight);
-            }
-        });
+        if (!toDelete.isEmpty() || !toInsert.isEmpty()) {
+            eventPublisher.publishEvent(new TagsChangedEvent(postId));
+        }
+    }
 
-        return tagDtoList;
+    /**
+     * Многострочный INSERT одним запросом: values идут построчно, по columns значений на строку.
+     * Таблица объявляется затронутой, чтобы Hibernate сбросил только её кэш запросов, а не весь кэш второго уровня
+     */
+    private void executeInsert(String prefix, int columns, Collection<?> values, Class<?> entity) {
+        if (values.size() % columns != 0) {
+            throw new IllegalArgumentException(values.size() + " values do not fill rows of " + columns + " columns");
+        }
+        String row = "(" + String.join(", ", Collections.nCopies(columns, "?")) + ")";
+        String sql = prefix + String.join(", ", Collections.nCopies(values.size() / columns, row));
+
+        NativeQuery<?> query = entityManager.createNativeQuery(sql)
+                .unwrap(NativeQuery.class)
+                .addSynchronizedEntityClass(entity);
+        int position = 1;
+        for (Object value : values) {
+            query.setParameter(position++, value);
+        }
+        query.executeUpdate();
     }
 }
@@ -2,15 +2,22 @@ package project.services;
 
 import lombok.AllArgsConstructor;
 import org.springframework.stereotype.Service;
+import project.dto.CommentUserDto;
 import project.models.User;
 import project.repositories.UsersRepo;
 
+import javax.persistence.Cache;
+import javax.persistence.EntityManager;
+import java.util.*;
+
 @Service
 @AllArgsConstructor
 public class UserService {
 
     private final UsersRepo usersRepo;
 
+    private final EntityManager entityManager;
+
     public User findUserByEmail(String email) {
         return usersRepo.findByEmail(email).orElse(null);
     }
@@ -19,13 +26,38 @@ public class UserService {
         return id == null ? null : usersRepo.findById(id).orElse(null);
     }
 
+    /**
+     * Краткие данные пользователей (id, имя, фото) для вывода авторов постов и комментариев.
+     * Пользователи из региона users кэша второго уровня берутся из него,
+     * остальные загружаются одним запросом и попадают в регион
+     */
+    public Map<Integer, CommentUserDto> findUserSummaries(Collection<Integer> ids) {
+        Cache cache = entityManager.getEntityManagerFactory().getCache();
+        List<User> users = new ArrayList<>();
+        List<Integer> missingIds = new ArrayList<>();
+        for (Integer id : new HashSet<>(ids)) {
+            if (cache.contains(User.class, id)) {
+                usersRepo.findById(id).ifPresent(users::add);
+            } else {
+                missingIds.add(id);
+            }
+        }
+        if (!missingIds.isEmpty()) {
+            usersRepo.findAllById(missingIds).forEach(users::add);
+        }
+
+        Map<Integer, CommentUserDto> summaries = new HashMap<>();
+        users.forEach(user -> summaries.put(user.getId(), new CommentUserDto(user.getId(), user.getName(), user.getPhoto())));
+        return summaries;
+    }
+
     public User findUserByRecoverCode(String code) {
         return usersRepo.findByCode(code).orElse(null);
     }
 
     public void updatePhoto(User user, String url) {
         user.setPhoto(url);
-        usersRepo.save(user);
+        saveUser(user);
     }
 
     public void saveUser(User user) {
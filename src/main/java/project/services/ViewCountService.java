@@ -0,0 +1,95 @@
+package project.services;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import project.events.ViewsFlushedEvent;
+
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Буфер просмотров постов: просмотры копятся в памяти и периодически сбрасываются в БД одним batch-запросом
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ViewCountService {
+
+    private static final String FLUSH_SQL = "UPDATE posts SET view_count = view_count + ? WHERE id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final ApplicationEventPublisher eventPublisher;
+
+    private final ConcurrentMap<Integer, LongAdder> pendingViews = new ConcurrentHashMap<>();
+
+    public void registerView(Integer postId) {
+        // compute атомарен с удалением пустого счётчика после сброса, поэтому просмотр не теряется
+        pendingViews.compute(postId, (id, views) -> {
+            LongAdder adder = views == null ? new LongAdder() : views;
+            adder.increment();
+            return adder;
+        });
+    }
+
+    /**
+     * Просмотры поста, ещё не записанные в БД
+     */
+    public long getPendingViews(Integer postId) {
+        LongAdder views = pendingViews.get(postId);
+        return views == null ? 0 : views.sum();
+    }
+
+    @PreDestroy
+    @Scheduled(fixedDelayString = "${view.count.flush.delay}")
+    public synchronized void flush() {
+        List<Object[]> batch = new ArrayList<>();
+        pendingViews.forEach((postId, views) -> {
+            long delta = views.sumThenReset();
+            if (delta > 0) {
+                batch.add(new Object[]{delta, postId});
+            }
+        });
+
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        try {
+            jdbcTemplate.batchUpdate(FLUSH_SQL, batch);
+
+            // посты без новых просмотров больше не держат счётчик в памяти
+            batch.forEach(row -> pendingViews.computeIfPresent(
+                    (Integer) row[1], (postId, views) -> views.sum() == 0 ? null : views));
+        } catch (DataAccessException e) {
+            log.error("Could not flush view counts, will retry", e);
+            batch.forEach(row -> pendingViews.merge((Integer) row[1], adder((Long) row[0]), (views, delta) -> {
+                views.add(delta.sum());
+                return views;
+            }));
+            return;
+        }
+
+        // событие публикуется только после записи: ошибка слушателя не должна вернуть уже записанные просмотры в буфер
+        Map<Integer, Long> flushed = new HashMap<>();
+        batch.forEach(row -> flushed.put((Integer) row[1], (Long) row[0]));
+        eventPublisher.publishEvent(new ViewsFlushedEvent(flushed));
+    }
+
+    private static LongAdder adder(long value) {
+        LongAdder adder = new LongAdder();
+        adder.add(value);
+        return adder;
+    }
+}
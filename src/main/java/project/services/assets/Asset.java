@@ -0,0 +1,36 @@
+package project.services.assets;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.springframework.http.MediaType;
+
+import java.io.File;
+
+/**
+ * Файл, готовый к отдаче клиенту, вместе с заголовками кэширования
+ */
+@Getter
+@AllArgsConstructor
+public class Asset {
+
+    /**
+     * null - файл хранится удалённо и отдаётся перенаправлением на redirectUrl
+     */
+    private final File file;
+
+    private final String redirectUrl;
+
+    private final MediaType contentType;
+
+    /**
+     * null - файл не сжат
+     */
+    private final String contentEncoding;
+
+    private final String etag;
+
+    /**
+     * Содержимое по этому адресу никогда не меняется (имя содержит хэш)
+     */
+    private final boolean immutable;
+}
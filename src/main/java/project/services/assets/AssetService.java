@@ -0,0 +1,159 @@
+package project.services.assets;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
+import org.springframework.stereotype.Service;
+import project.services.ImageService;
+import project.services.blobs.BlobStore;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Поиск загруженных изображений и собранных файлов фронтенда (static/) для AssetController.
+ * Загрузки из удалённого BlobStore отдаются перенаправлением на его публичный адрес.
+ * Остальные отдаваемые файлы лежат на диске, чтобы их можно было передать через sendfile:
+ * ресурсы из jar и gzip-версии js/css, для которых сборка не положила .gz/.br, создаются в asset.cache.path
+ */
+@Service
+@RequiredArgsConstructor
+public class AssetService {
+
+    private static final Pattern UPLOAD_NAME = Pattern.compile("^([0-9a-f]{64})(_[a-z]+)?\\.\\w+$");
+
+    private static final Pattern BUNDLE_NAME = Pattern.compile("^.+\\.([0-9a-f]{8,})\\.\\w+$");
+
+    private static final Pattern COMPRESSIBLE = Pattern.compile("^.+\\.(js|css|svg|map)$");
+
+    private final ImageService imageService;
+
+    private final BlobStore blobStore;
+
+    @Value("${asset.cache.path}")
+    private String cacheLocation;
+
+    public Asset findUpload(String path) {
+        if (blobStore.exists(path)) {
+            Matcher matcher = UPLOAD_NAME.matcher(path.substring(path.lastIndexOf('/') + 1));
+            if (matcher.matches()) {
+                String rendition = matcher.group(2) == null ? "" : matcher.group(2);
+                return uploadAsset(path, quote(matcher.group(1) + rendition), true);
+            }
+            return uploadAsset(path, null, false);
+        }
+
+        String placeholder = imageService.getPlaceholder(path);
+        return placeholder == null ? null : uploadAsset(placeholder, null, false);
+    }
+
+    private Asset uploadAsset(String key, String etag, boolean immutable) {
+        File file = blobStore.getLocalFile(key);
+        if (file == null) {
+            return new Asset(null, blobStore.getPublicUrl(key), mediaType(key), null, etag, immutable);
+        }
+        return new Asset(file, null, mediaType(key), null, etag == null ? weakEtag(file) : etag, immutable);
+    }
+
+    public Asset findBundle(String path, String acceptEncoding) throws IOException {
+        ClassPathResource resource = new ClassPathResource("static/" + path);
+        if (path.contains("..") || !resource.exists()) {
+            return null;
+        }
+
+        Matcher matcher = BUNDLE_NAME.matcher(path);
+        boolean immutable = matcher.matches();
+        String version = immutable ? matcher.group(1) : String.valueOf(resource.lastModified());
+        MediaType contentType = mediaType(path);
+        String accepted = acceptEncoding == null ? "" : acceptEncoding;
+
+        if (accepted.contains("br")) {
+            ClassPathResource br = new ClassPathResource("static/" + path + ".br");
+            if (br.exists()) {
+                return new Asset(toFile(br, path + ".br"), null, contentType, "br", quote(version + "-br"), immutable);
+            }
+        }
+        if (accepted.contains("gzip") && COMPRESSIBLE.matcher(path).matches()) {
+            ClassPathResource gz = new ClassPathResource("static/" + path + ".gz");
+            File gzFile = gz.exists() ? toFile(gz, path + ".gz") : compress(resource, path);
+            return new Asset(gzFile, null, contentType, "gzip", quote(version + "-gz"), immutable);
+        }
+
+        return new Asset(toFile(resource, path), null, contentType, null, quote(version), immutable);
+    }
+
+    private File toFile(ClassPathResource resource, String path) throws IOException {
+        if (resource.isFile()) {
+            return resource.getFile();
+        }
+
+        File cached = new File(cacheLocation, path);
+        if (!cached.isFile()) {
+            try (InputStream in = resource.getInputStream()) {
+                writeAtomically(cached, out -> copy(in, out));
+            }
+        }
+        return cached;
+    }
+
+    private File compress(ClassPathResource resource, String path) throws IOException {
+        File cached = new File(cacheLocation, path + ".gz");
+        if (!cached.isFile() || cached.lastModified() < resource.lastModified()) {
+            try (InputStream in = resource.getInputStream()) {
+                writeAtomically(cached, out -> {
+                    try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+                        copy(in, gzip);
+                    }
+                });
+            }
+        }
+        return cached;
+    }
+
+    private void writeAtomically(File target, StreamWriter writer) throws IOException {
+        Files.createDirectories(target.getParentFile().toPath());
+        Path tmp = Files.createTempFile(target.getParentFile().toPath(), target.getName(), ".tmp");
+        try {
+            try (OutputStream out = Files.newOutputStream(tmp)) {
+                writer.write(out);
+            }
+            Files.move(tmp, target.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    private void copy(InputStream in, OutputStream out) throws IOException {
+        byte[] buffer = new byte[8192];
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            out.write(buffer, 0, read);
+        }
+    }
+
+    private MediaType mediaType(String name) {
+        return MediaTypeFactory.getMediaType(name).orElse(MediaType.APPLICATION_OCTET_STREAM);
+    }
+
+    private String weakEtag(File file) {
+        return "W/" + quote(Long.toHexString(file.length()) + "-" + Long.toHexString(file.lastModified()));
+    }
+
+    private String quote(String value) {
+        return "\"" + value + "\"";
+    }
+
+    private interface StreamWriter {
+        void write(OutputStream out) throws IOException;
+    }
+}
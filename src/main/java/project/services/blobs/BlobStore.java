@@ -0,0 +1,34 @@
+package project.services.blobs;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+
+/**
+ * Хранилище загруженных файлов. Ключ - относительный путь вида aa/bb/hash.type.
+ * Реализация выбирается свойством blob.store (filesystem, s3)
+ */
+public interface BlobStore {
+
+    boolean exists(String key);
+
+    /**
+     * Сохраняет файл source под ключом key. source - временный файл, после вызова он может быть перемещён
+     */
+    void put(String key, Path source, String contentType) throws IOException;
+
+    InputStream open(String key) throws IOException;
+
+    void delete(String key);
+
+    /**
+     * Файл на локальном диске для отдачи через sendfile или null, если блоб хранится удалённо
+     */
+    File getLocalFile(String key);
+
+    /**
+     * Внешний адрес блоба, на который можно перенаправить клиента, или null
+     */
+    String getPublicUrl(String key);
+}
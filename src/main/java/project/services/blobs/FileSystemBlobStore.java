@@ -0,0 +1,71 @@
+package project.services.blobs;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * Файлы в каталоге upload.path на локальном диске
+ */
+@Service
+@ConditionalOnProperty(name = "blob.store", havingValue = "filesystem", matchIfMissing = true)
+public class FileSystemBlobStore implements BlobStore {
+
+    @Value("${upload.path}")
+    private String location;
+
+    @Override
+    public boolean exists(String key) {
+        File file = resolve(key);
+        return file != null && file.isFile();
+    }
+
+    @Override
+    public void put(String key, Path source, String contentType) throws IOException {
+        File target = resolve(key);
+        if (target == null) {
+            throw new IllegalArgumentException("Invalid blob key " + key);
+        }
+        Files.createDirectories(target.getParentFile().toPath());
+        Files.move(source, target.toPath(), StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    @Override
+    public InputStream open(String key) throws IOException {
+        File file = resolve(key);
+        return file == null ? null : Files.newInputStream(file.toPath());
+    }
+
+    @Override
+    public void delete(String key) {
+        File file = resolve(key);
+        if (file != null) {
+            file.delete();
+        }
+    }
+
+    @Override
+    public File getLocalFile(String key) {
+        File file = resolve(key);
+        return file != null && file.isFile() ? file : null;
+    }
+
+    @Override
+    public String getPublicUrl(String key) {
+        return null;
+    }
+
+    private File resolve(String key) {
+        Path root = Paths.get(location).toAbsolutePath().normalize();
+        Path resolved = root.resolve(key).normalize();
+        return resolved.startsWith(root) ? resolved.toFile() : null;
+    }
+}
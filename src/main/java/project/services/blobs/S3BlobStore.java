@@ -0,0 +1,128 @@
+package project.services.blobs;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
+import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
+import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.S3ClientBuilder;
+import software.amazon.awssdk.services.s3.S3Configuration;
+import software.amazon.awssdk.services.s3.model.*;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.file.Path;
+
+/**
+ * Файлы в бакете S3-совместимого хранилища (AWS S3, MinIO).
+ * Для MinIO задаётся blob.s3.endpoint, адресация бакета - по пути.
+ * Клиенты получают файлы по blob.s3.public-url (бакет с публичным чтением или CDN перед ним),
+ * поэтому без него приложение не запускается
+ */
+@Service
+@ConditionalOnProperty(name = "blob.store", havingValue = "s3")
+public class S3BlobStore implements BlobStore {
+
+    private static final String IMMUTABLE = "public, max-age=31536000, immutable";
+
+    @Value("${blob.s3.endpoint}")
+    private String endpoint;
+
+    @Value("${blob.s3.region}")
+    private String region;
+
+    @Value("${blob.s3.bucket}")
+    private String bucket;
+
+    @Value("${blob.s3.access-key}")
+    private String accessKey;
+
+    @Value("${blob.s3.secret-key}")
+    private String secretKey;
+
+    @Value("${blob.s3.public-url}")
+    private String publicUrl;
+
+    private S3Client s3;
+
+    @PostConstruct
+    public void init() {
+        if (publicUrl.isEmpty()) {
+            throw new IllegalStateException("blob.s3.public-url must be set when blob.store=s3");
+        }
+
+        S3ClientBuilder builder = S3Client.builder()
+                .region(Region.of(region))
+                .credentialsProvider(StaticCredentialsProvider.create(AwsBasicCredentials.create(accessKey, secretKey)));
+
+        if (!endpoint.isEmpty()) {
+            builder.endpointOverride(URI.create(endpoint))
+                    .serviceConfiguration(S3Configuration.builder().pathStyleAccessEnabled(true).build());
+        }
+
+        s3 = builder.build();
+    }
+
+    @PreDestroy
+    public void close() {
+        s3.close();
+    }
+
+    @Override
+    public boolean exists(String key) {
+        try {
+            s3.headObject(HeadObjectRequest.builder().bucket(bucket).key(key).build());
+            return true;
+        } catch (NoSuchKeyException e) {
+            return false;
+        } catch (S3Exception e) {
+            if (e.statusCode() == 404) {
+                return false;
+            }
+            throw e;
+        }
+    }
+
+    @Override
+    public void put(String key, Path source, String contentType) throws IOException {
+        // тело запроса читается из файла потоково, в heap файл целиком не попадает
+        s3.putObject(PutObjectRequest.builder()
+                        .bucket(bucket)
+                        .key(key)
+                        .contentType(contentType)
+                        .cacheControl(IMMUTABLE)
+                        .build(),
+                RequestBody.fromFile(source));
+    }
+
+    @Override
+    public InputStream open(String key) throws IOException {
+        try {
+            return s3.getObject(GetObjectRequest.builder().bucket(bucket).key(key).build());
+        } catch (NoSuchKeyException e) {
+            return null;
+        }
+    }
+
+    @Override
+    public void delete(String key) {
+        s3.deleteObject(DeleteObjectRequest.builder().bucket(bucket).key(key).build());
+    }
+
+    @Override
+    public File getLocalFile(String key) {
+        return null;
+    }
+
+    @Override
+    public String getPublicUrl(String key) {
+        return publicUrl + key;
+    }
+}
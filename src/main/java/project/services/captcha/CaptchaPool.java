@@ -0,0 +1,132 @@
+package project.services.captcha;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.RandomStringUtils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import javax.imageio.ImageIO;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Base64;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Пул заранее отрисованных картинок каптчи. Пополняется до captcha.pool.size в собственном потоке
+ * (планировщик только запускает пополнение и не занят отрисовкой), каждая картинка выдаётся один раз.
+ * Если пул опустел, картинка рисуется в потоке запроса
+ */
+@Slf4j
+@Component
+public class CaptchaPool {
+
+    private final BlockingQueue<RenderedCaptcha> pool;
+
+    private final ExecutorService renderer = Executors.newSingleThreadExecutor();
+
+    private final AtomicBoolean refilling = new AtomicBoolean();
+
+    public CaptchaPool(@Value("${captcha.pool.size}") Integer poolSize) {
+        this.pool = new ArrayBlockingQueue<>(poolSize);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        renderer.shutdownNow();
+    }
+
+    public RenderedCaptcha take() {
+        RenderedCaptcha captcha = pool.poll();
+        if (captcha == null) {
+            log.debug("Captcha pool is empty, rendering on request");
+            captcha = render();
+        }
+        return captcha;
+    }
+
+    @Scheduled(initialDelay = 0, fixedDelayString = "${captcha.pool.refill.delay}")
+    public void refill() {
+        if (pool.remainingCapacity() == 0 || !refilling.compareAndSet(false, true)) {
+            return;
+        }
+
+        renderer.execute(() -> {
+            try {
+                while (pool.remainingCapacity() > 0 && !Thread.currentThread().isInterrupted()) {
+                    if (!pool.offer(render())) {
+                        break;
+                    }
+                }
+            } catch (RuntimeException e) {
+                log.error("Could not refill captcha pool", e);
+            } finally {
+                refilling.set(false);
+            }
+        });
+    }
+
+    private RenderedCaptcha render() {
+        String code = RandomStringUtils.random(4, false, true);
+        return new RenderedCaptcha(code, getImageBase64(code, 20));
+    }
+
+    private String getImageBase64(String code, int codeSize) {
+        BufferedImage img = new BufferedImage(1, 1, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g2d = img.createGraphics();
+        Font font = new Font("Times New Roman", Font.PLAIN, codeSize);
+        g2d.setFont(font);
+        FontMetrics fm = g2d.getFontMetrics();
+        int width = fm.stringWidth(code);
+        int height = fm.getHeight();
+        g2d.dispose();
+
+        img = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        g2d = img.createGraphics();
+
+        g2d.setPaint(Color.WHITE);
+        g2d.fillRect(0, 0, width, height);
+
+        g2d.setRenderingHint(RenderingHints.KEY_ALPHA_INTERPOLATION, RenderingHints.VALUE_ALPHA_INTERPOLATION_QUALITY);
+        g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        g2d.setRenderingHint(RenderingHints.KEY_COLOR_RENDERING, RenderingHints.VALUE_COLOR_RENDER_QUALITY);
+        g2d.setRenderingHint(RenderingHints.KEY_DITHERING, RenderingHints.VALUE_DITHER_ENABLE);
+        g2d.setRenderingHint(RenderingHints.KEY_FRACTIONALMETRICS, RenderingHints.VALUE_FRACTIONALMETRICS_ON);
+        g2d.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+        g2d.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+        g2d.setRenderingHint(RenderingHints.KEY_STROKE_CONTROL, RenderingHints.VALUE_STROKE_PURE);
+
+        g2d.setFont(font);
+        fm = g2d.getFontMetrics();
+        g2d.setColor(Color.BLACK);
+        g2d.drawString(code, 0, fm.getAscent());
+        g2d.dispose();
+
+        try (ByteArrayOutputStream os = new ByteArrayOutputStream()) {
+            ImageIO.write(img, "png", os);
+            return "data:image/png;charset=utf-8;base64, " + Base64.getEncoder().encodeToString(os.toByteArray());
+        } catch (IOException e) {
+            // пустая картинка в пуле означала бы каптчу, которую невозможно пройти
+            throw new UncheckedIOException("Could not render captcha image", e);
+        }
+    }
+
+    @Getter
+    @AllArgsConstructor
+    public static class RenderedCaptcha {
+
+        private final String code;
+
+        private final String image;
+    }
+}
@@ -0,0 +1,17 @@
+package project.services.captcha;
+
+/**
+ * Хранилище выданных, но ещё не использованных каптч: секретный код -> код с картинки.
+ * Реализация выбирается свойством captcha.store (memory, redis)
+ */
+public interface CaptchaStore {
+
+    void save(String secretCode, String code);
+
+    /**
+     * Код с картинки или null, если каптча не выдавалась или истекла
+     */
+    String getCode(String secretCode);
+
+    void remove(String secretCode);
+}
@@ -0,0 +1,49 @@
+package project.services.captcha;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Каптчи в памяти процесса с ограничением размера и временем жизни captcha.ttl.
+ * Подходит только для одного экземпляра приложения
+ */
+@Service
+@ConditionalOnProperty(name = "captcha.store", havingValue = "memory", matchIfMissing = true)
+public class InMemoryCaptchaStore implements CaptchaStore {
+
+    private final Cache<String, String> captchas;
+
+    public InMemoryCaptchaStore(@Value("${captcha.ttl}") Long captchaTtl,
+                                @Value("${captcha.store.memory.max-size}") Long maxSize) {
+        this.captchas = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(captchaTtl, TimeUnit.SECONDS)
+                .build();
+    }
+
+    @Override
+    public void save(String secretCode, String code) {
+        captchas.put(secretCode, code);
+    }
+
+    @Override
+    public String getCode(String secretCode) {
+        return captchas.getIfPresent(secretCode);
+    }
+
+    @Override
+    public void remove(String secretCode) {
+        captchas.invalidate(secretCode);
+    }
+
+    @Scheduled(fixedDelayString = "${captcha.cleanup.delay}")
+    public void deleteExpired() {
+        captchas.cleanUp();
+    }
+}
@@ -0,0 +1,40 @@
+package project.services.captcha;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Каптчи в Redis с истечением по TTL ключа
+ */
+@Service
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "captcha.store", havingValue = "redis")
+public class RedisCaptchaStore implements CaptchaStore {
+
+    private static final String KEY_PREFIX = "blog:captcha:";
+
+    private final StringRedisTemplate redisTemplate;
+
+    @Value("${captcha.ttl}")
+    private Long captchaTtl;
+
+    @Override
+    public void save(String secretCode, String code) {
+        redisTemplate.opsForValue().set(KEY_PREFIX + secretCode, code, captchaTtl, TimeUnit.SECONDS);
+    }
+
+    @Override
+    public String getCode(String secretCode) {
+        return redisTemplate.opsForValue().get(KEY_PREFIX + secretCode);
+    }
+
+    @Override
+    public void remove(String secretCode) {
+        redisTemplate.delete(KEY_PREFIX + secretCode);
+    }
+}
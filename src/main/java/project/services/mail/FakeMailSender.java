@@ -0,0 +1,51 @@
+package project.services.mail;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.mail.MailException;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+import org.springframework.stereotype.Component;
+
+import javax.mail.MessagingException;
+import javax.mail.internet.MimeMessage;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedDeque;
+
+/**
+ * Заглушка SMTP для локального запуска и тестов (mail.sink=fake): письма не уходят наружу,
+ * а складываются в память и пишутся в лог
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "mail.sink", havingValue = "fake")
+public class FakeMailSender extends JavaMailSenderImpl {
+
+    private static final int MAX_STORED = 1000;
+
+    private final ConcurrentLinkedDeque<MimeMessage> messages = new ConcurrentLinkedDeque<>();
+
+    @Override
+    protected void doSend(MimeMessage[] mimeMessages, Object[] originalMessages) throws MailException {
+        for (MimeMessage message : mimeMessages) {
+            messages.addLast(message);
+            if (messages.size() > MAX_STORED) {
+                messages.pollFirst();
+            }
+            try {
+                log.info("Fake mail to {}: {}", Arrays.toString(message.getAllRecipients()), message.getSubject());
+            } catch (MessagingException e) {
+                log.info("Fake mail accepted");
+            }
+        }
+    }
+
+    public List<MimeMessage> getMessages() {
+        return new ArrayList<>(messages);
+    }
+
+    public void clear() {
+        messages.clear();
+    }
+}
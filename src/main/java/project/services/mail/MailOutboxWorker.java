@@ -0,0 +1,217 @@
+package project.services.mail;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.mail.MailException;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.mail.javamail.MimeMessageHelper;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+import project.models.OutboxMail;
+import project.repositories.MailOutboxRepo;
+import project.repositories.OffsetPageRequest;
+
+import javax.annotation.PreDestroy;
+import javax.mail.MessagingException;
+import javax.mail.internet.MimeMessage;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Отправка писем из таблицы mail_outbox ограниченным пулом потоков.
+ * Письма уходят пачками: JavaMailSender отправляет пачку через одно SMTP-соединение (Transport).
+ * Неотправленные письма повторяются с экспоненциальной задержкой, после mail.outbox.max-attempts помечаются failed
+ */
+@Slf4j
+@Service
+public class MailOutboxWorker {
+
+    private static final long MAX_BACKOFF = 3600000;
+
+    private final MailOutboxRepo mailOutboxRepo;
+
+    private final JavaMailSender mailSender;
+
+    private final ThreadPoolTaskExecutor executor;
+
+    private final AtomicLong queueDepth = new AtomicLong();
+
+    private final Timer sendTimer;
+
+    private final Counter sentCounter;
+
+    private final Counter retryCounter;
+
+    private final Counter failedCounter;
+
+    @Value("${spring.mail.username}")
+    private String userName;
+
+    @Value("${mail.outbox.batch-size}")
+    private Integer batchSize;
+
+    @Value("${mail.outbox.max-attempts}")
+    private Integer maxAttempts;
+
+    @Value("${mail.outbox.backoff}")
+    private Long backoff;
+
+    @Value("${mail.outbox.lease}")
+    private Long lease;
+
+    public MailOutboxWorker(MailOutboxRepo mailOutboxRepo,
+                            JavaMailSender mailSender,
+                            MeterRegistry meterRegistry,
+                            @Value("${mail.outbox.workers}") Integer workers) {
+        this.mailOutboxRepo = mailOutboxRepo;
+        this.mailSender = mailSender;
+
+        executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(workers);
+        executor.setMaxPoolSize(workers);
+        executor.setQueueCapacity(workers);
+        executor.setThreadNamePrefix("mail-outbox-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
+        executor.initialize();
+
+        meterRegistry.gauge("mail.outbox.depth", queueDepth);
+        sendTimer = meterRegistry.timer("mail.send.latency");
+        sentCounter = meterRegistry.counter("mail.send", "result", "sent");
+        retryCounter = meterRegistry.counter("mail.send", "result", "retry");
+        failedCounter = meterRegistry.counter("mail.send", "result", "failed");
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    @Scheduled(fixedDelayString = "${mail.outbox.poll.delay}")
+    public void poll() {
+        queueDepth.set(mailOutboxRepo.countByFailed((byte) 0));
+
+        int capacity = executor.getMaxPoolSize() - executor.getActiveCount();
+        if (capacity <= 0) {
+            return;
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        List<OutboxMail> due = mailOutboxRepo.findAllByFailedAndNextAttemptAtBefore(
+                (byte) 0, now, OffsetPageRequest.of(0, capacity * batchSize,
+                        org.springframework.data.domain.Sort.by("nextAttemptAt", "id"))
+        );
+
+        List<OutboxMail> batch = new ArrayList<>();
+        for (OutboxMail mail : due) {
+            LocalDateTime leaseUntil = now.plusNanos(lease * 1000000);
+            if (mailOutboxRepo.claim(mail.getId(), mail.getNextAttemptAt(), leaseUntil) == 0) {
+                continue;
+            }
+            mail.setNextAttemptAt(leaseUntil);
+            batch.add(mail);
+
+            if (batch.size() == batchSize) {
+                submit(batch);
+                batch = new ArrayList<>();
+            }
+        }
+        if (!batch.isEmpty()) {
+            submit(batch);
+        }
+    }
+
+    private void submit(List<OutboxMail> batch) {
+        try {
+            executor.execute(() -> sendBatch(batch));
+        } catch (TaskRejectedException e) {
+            // захват истечёт через mail.outbox.lease, и письма будут подобраны следующим опросом
+            log.warn("Mail outbox workers are busy, {} mails postponed", batch.size());
+        }
+    }
+
+    private void sendBatch(List<OutboxMail> batch) {
+        Map<MimeMessage, OutboxMail> messages = new LinkedHashMap<>();
+        Map<OutboxMail, Exception> failures = new HashMap<>();
+
+        for (OutboxMail mail : batch) {
+            try {
+                messages.put(createMessage(mail), mail);
+            } catch (MessagingException e) {
+                failures.put(mail, e);
+            }
+        }
+
+        if (!messages.isEmpty()) {
+            long start = System.nanoTime();
+            try {
+                mailSender.send(messages.keySet().toArray(new MimeMessage[0]));
+            } catch (MailSendException e) {
+                e.getFailedMessages().forEach((message, exception) -> {
+                    OutboxMail mail = messages.get(message);
+                    if (mail != null) {
+                        failures.put(mail, exception);
+                    }
+                });
+                if (e.getFailedMessages().isEmpty()) {
+                    messages.values().forEach(mail -> failures.put(mail, e));
+                }
+            } catch (MailException e) {
+                messages.values().forEach(mail -> failures.put(mail, e));
+            }
+            sendTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+
+        List<OutboxMail> sent = new ArrayList<>();
+        for (OutboxMail mail : batch) {
+            Exception failure = failures.get(mail);
+            if (failure == null) {
+                sent.add(mail);
+            } else {
+                reschedule(mail, failure);
+            }
+        }
+
+        mailOutboxRepo.deleteAll(sent);
+        sentCounter.increment(sent.size());
+    }
+
+    private void reschedule(OutboxMail mail, Exception failure) {
+        int attempts = mail.getAttempts() + 1;
+        mail.setAttempts(attempts);
+        mail.setLastError(String.valueOf(failure.getMessage()));
+
+        if (attempts >= maxAttempts) {
+            mail.setFailed((byte) 1);
+            failedCounter.increment();
+            log.error("Could not send mail {} to {} after {} attempts", mail.getId(), mail.getMailTo(), attempts, failure);
+        } else {
+            long delay = Math.min(backoff << Math.min(attempts - 1, 30), MAX_BACKOFF);
+            mail.setNextAttemptAt(LocalDateTime.now().plusNanos(delay * 1000000));
+            retryCounter.increment();
+            log.warn("Could not send mail {}, retry in {} ms: {}", mail.getId(), delay, failure.getMessage());
+        }
+
+        mailOutboxRepo.save(mail);
+    }
+
+    private MimeMessage createMessage(OutboxMail mail) throws MessagingException {
+        MimeMessage mimeMessage = mailSender.createMimeMessage();
+
+        MimeMessageHelper message = new MimeMessageHelper(mimeMessage, true, "UTF-8");
+        message.setFrom(userName);
+        message.setTo(mail.getMailTo());
+        message.setSubject(mail.getSubject());
+        message.setText(mail.getText(), true);
+
+        return mimeMessage;
+    }
+}
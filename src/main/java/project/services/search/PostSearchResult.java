@@ -0,0 +1,26 @@
+package project.services.search;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+import java.util.Map;
+
+@Data
+@AllArgsConstructor
+public class PostSearchResult {
+
+    private Integer count;
+
+    /**
+     * id найденных постов в порядке релевантности
+     */
+    private List<Integer> postIds;
+
+    /**
+     * Фрагменты текста с подсвеченными совпадениями: postId -> фрагмент
+     */
+    private Map<Integer, String> highlights;
+
+    private String nextCursor;
+}
@@ -0,0 +1,253 @@
+package project.services.search;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.ru.RussianAnalyzer;
+import org.apache.lucene.document.*;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.queryparser.classic.MultiFieldQueryParser;
+import org.apache.lucene.queryparser.classic.ParseException;
+import org.apache.lucene.queryparser.classic.QueryParser;
+import org.apache.lucene.search.*;
+import org.apache.lucene.search.highlight.Highlighter;
+import org.apache.lucene.search.highlight.InvalidTokenOffsetsException;
+import org.apache.lucene.search.highlight.QueryScorer;
+import org.apache.lucene.search.highlight.SimpleFragmenter;
+import org.apache.lucene.store.FSDirectory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import project.events.PostChangedEvent;
+import project.models.Post;
+import project.models.enums.ModerationStatusesEnum;
+import project.repositories.OffsetPageRequest;
+import project.repositories.PostsRepo;
+import project.services.PostCursor;
+import project.services.PostExcerptExtractor;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.*;
+
+/**
+ * Полнотекстовый поиск по опубликованным постам на встроенном индексе Lucene.
+ * Индекс обновляется при публикации, редактировании и модерации поста; изменения видны поиску сразу
+ * (near-real-time читатели обновляются из IndexWriter фоновым потоком), а на диск фиксируются
+ * раз в search.index.commit.delay и при остановке. Полная перестройка - при пустом индексе
+ * или запуске с --search.index.rebuild=true
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class PostSearchService {
+
+    private static final String ID = "id";
+    private static final String ID_SORT = "id_sort";
+    private static final String TITLE = "title";
+    private static final String TEXT = "text";
+    private static final String TIME = "time";
+
+    private static final int REBUILD_BATCH_SIZE = 500;
+
+    private static final double MAX_STALE_SEC = 1.0;
+    private static final double MIN_STALE_SEC = 0.1;
+
+    private final PostsRepo postsRepo;
+
+    private final PostExcerptExtractor excerptExtractor;
+
+    @Value("${search.index.path}")
+    private String indexPath;
+
+    @Value("${search.index.rebuild}")
+    private Boolean rebuildOnStartup;
+
+    @Value("${search.highlight.length}")
+    private Integer highlightLength;
+
+    private Analyzer analyzer;
+
+    private IndexWriter writer;
+
+    private SearcherManager searcherManager;
+
+    private ControlledRealTimeReopenThread<IndexSearcher> reopenThread;
+
+    @PostConstruct
+    public void init() throws IOException {
+        analyzer = new RussianAnalyzer();
+        writer = new IndexWriter(FSDirectory.open(Paths.get(indexPath)), new IndexWriterConfig(analyzer));
+        searcherManager = new SearcherManager(writer, null);
+
+        reopenThread = new ControlledRealTimeReopenThread<>(writer, searcherManager, MAX_STALE_SEC, MIN_STALE_SEC);
+        reopenThread.setName("search-index-reopen");
+        reopenThread.setDaemon(true);
+        reopenThread.start();
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        reopenThread.close();
+        searcherManager.close();
+        // закрытие IndexWriter фиксирует изменения, накопленные с последнего commit
+        writer.close();
+    }
+
+    @Scheduled(fixedDelayString = "${search.index.commit.delay}")
+    public void commit() {
+        if (!writer.hasUncommittedChanges()) {
+            return;
+        }
+
+        try {
+            writer.commit();
+        } catch (IOException e) {
+            log.error("Could not commit search index, will retry", e);
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildIfNeeded() {
+        if (rebuildOnStartup || writer.getDocStats().numDocs == 0) {
+            rebuild();
+        }
+    }
+
+    public synchronized void rebuild() {
+        try {
+            writer.deleteAll();
+
+            int indexed = 0;
+            List<Post> batch;
+            do {
+                batch = postsRepo.findAllByModerationStatusAndIsActive(
+                        ModerationStatusesEnum.ACCEPTED, (byte) 1,
+                        OffsetPageRequest.of(indexed, REBUILD_BATCH_SIZE, org.springframework.data.domain.Sort.by("id"))
+                );
+                for (Post post : batch) {
+                    writer.addDocument(toDocument(post));
+                }
+                indexed += batch.size();
+            } while (batch.size() == REBUILD_BATCH_SIZE);
+
+            writer.commit();
+            searcherManager.maybeRefresh();
+            log.info("Search index rebuilt, {} posts indexed", indexed);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not rebuild search index", e);
+        }
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public synchronized void onPostChanged(PostChangedEvent event) {
+        Post post = event.getPost();
+        Term id = new Term(ID, String.valueOf(post.getId()));
+
+        try {
+            if (post.getIsActive() == 1 && post.getModerationStatus() == ModerationStatusesEnum.ACCEPTED) {
+                writer.updateDocument(id, toDocument(post));
+            } else {
+                writer.deleteDocuments(id);
+            }
+        } catch (IOException e) {
+            log.error("Could not update post {} in search index", post.getId(), e);
+        }
+    }
+
+    /**
+     * Поиск опубликованных постов по релевантности.
+     * cursor == null - постраничный режим по offset, иначе keyset-режим по (score, id)
+     */
+    public PostSearchResult search(String queryString, Integer offset, Integer limit, String cursor) {
+        Query textQuery;
+        try {
+            textQuery = new MultiFieldQueryParser(new String[]{TITLE, TEXT}, analyzer)
+                    .parse(QueryParser.escape(queryString));
+        } catch (ParseException e) {
+            return new PostSearchResult(0, Collections.emptyList(), Collections.emptyMap(), null);
+        }
+
+        Query query = new BooleanQuery.Builder()
+                .add(textQuery, BooleanClause.Occur.MUST)
+                .add(LongPoint.newRangeQuery(TIME, Long.MIN_VALUE, toEpochSecond(LocalDateTime.now())),
+                        BooleanClause.Occur.FILTER)
+                .build();
+        Sort sort = new Sort(SortField.FIELD_SCORE, new SortField(ID_SORT, SortField.Type.INT, true));
+
+        try {
+            IndexSearcher searcher = searcherManager.acquire();
+            try {
+                int count = searcher.count(query);
+
+                ScoreDoc[] hits;
+                if (cursor == null) {
+                    ScoreDoc[] top = searcher.search(query, offset + limit, sort, true).scoreDocs;
+                    hits = offset < top.length ? Arrays.copyOfRange(top, offset, top.length) : new ScoreDoc[0];
+                } else {
+                    FieldDoc after = null;
+                    if (!cursor.isEmpty()) {
+                        PostCursor postCursor = PostCursor.decode(cursor);
+                        after = new FieldDoc(Integer.MAX_VALUE, postCursor.getScore(),
+                                new Object[]{postCursor.getScore(), postCursor.getId()});
+                    }
+                    hits = searcher.searchAfter(after, query, limit, sort, true).scoreDocs;
+                }
+
+                // клиент выводит анонс как обычный текст, поэтому фрагмент возвращается без разметки совпадений
+                Highlighter highlighter = new Highlighter((text, tokenGroup) -> text, new QueryScorer(textQuery));
+                highlighter.setTextFragmenter(new SimpleFragmenter(highlightLength));
+
+                List<Integer> postIds = new ArrayList<>();
+                Map<Integer, String> highlights = new HashMap<>();
+                for (ScoreDoc hit : hits) {
+                    Document document = searcher.doc(hit.doc);
+                    Integer postId = Integer.valueOf(document.get(ID));
+                    postIds.add(postId);
+
+                    String fragment = highlighter.getBestFragment(analyzer, TEXT, document.get(TEXT));
+                    if (fragment != null) {
+                        highlights.put(postId, fragment);
+                    }
+                }
+
+                String nextCursor = null;
+                if (cursor != null && hits.length == limit) {
+                    ScoreDoc last = hits[hits.length - 1];
+                    nextCursor = PostCursor.ofScore(last.score, postIds.get(postIds.size() - 1)).encode();
+                }
+
+                return new PostSearchResult(count, postIds, highlights, nextCursor);
+            } finally {
+                searcherManager.release(searcher);
+            }
+        } catch (IOException | InvalidTokenOffsetsException e) {
+            throw new IllegalStateException("Search failed", e);
+        }
+    }
+
+    private Document toDocument(Post post) {
+        Document document = new Document();
+        document.add(new StringField(ID, String.valueOf(post.getId()), Field.Store.YES));
+        document.add(new NumericDocValuesField(ID_SORT, post.getId()));
+        document.add(new TextField(TITLE, post.getTitle(), Field.Store.YES));
+        document.add(new TextField(TEXT, excerptExtractor.extractText(post.getText()), Field.Store.YES));
+        document.add(new LongPoint(TIME, toEpochSecond(post.getTime())));
+        return document;
+    }
+
+    private long toEpochSecond(LocalDateTime time) {
+        return time.toEpochSecond(ZoneOffset.UTC);
+    }
+}
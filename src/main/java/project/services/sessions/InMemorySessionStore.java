@@ -0,0 +1,43 @@
+package project.services.sessions;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Сессии в памяти процесса с ограничением размера и временем жизни с момента последнего обращения.
+ * Подходит только для одного экземпляра приложения
+ */
+@Service
+@ConditionalOnProperty(name = "session.store", havingValue = "memory", matchIfMissing = true)
+public class InMemorySessionStore implements SessionStore {
+
+    private final Cache<String, Integer> sessions;
+
+    public InMemorySessionStore(@Value("${session.ttl}") Long sessionTtl,
+                                @Value("${session.store.memory.max-size}") Long maxSize) {
+        this.sessions = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterAccess(sessionTtl, TimeUnit.SECONDS)
+                .build();
+    }
+
+    @Override
+    public Integer getUserId(String sessionId) {
+        return sessions.getIfPresent(sessionId);
+    }
+
+    @Override
+    public void save(String sessionId, Integer userId) {
+        sessions.put(sessionId, userId);
+    }
+
+    @Override
+    public void remove(String sessionId) {
+        sessions.invalidate(sessionId);
+    }
+}
@@ -0,0 +1,55 @@
+package project.services.sessions;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import project.models.UserSession;
+import project.repositories.SessionsRepo;
+
+import java.time.LocalDateTime;
+
+/**
+ * Сессии в таблице sessions. Срок жизни продлевается, когда до истечения остаётся меньше половины session.ttl,
+ * чтобы не писать в БД на каждый запрос
+ */
+@Service
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "session.store", havingValue = "jdbc")
+public class JdbcSessionStore implements SessionStore {
+
+    private final SessionsRepo sessionsRepo;
+
+    @Value("${session.ttl}")
+    private Long sessionTtl;
+
+    @Override
+    public Integer getUserId(String sessionId) {
+        LocalDateTime now = LocalDateTime.now();
+        UserSession session = sessionsRepo.findBySessionIdAndExpiresAtAfter(sessionId, now).orElse(null);
+        if (session == null) {
+            return null;
+        }
+
+        if (session.getExpiresAt().isBefore(now.plusSeconds(sessionTtl / 2))) {
+            sessionsRepo.updateExpiresAt(sessionId, now.plusSeconds(sessionTtl));
+        }
+        return session.getUserId();
+    }
+
+    @Override
+    public void save(String sessionId, Integer userId) {
+        sessionsRepo.save(new UserSession(sessionId, userId, LocalDateTime.now().plusSeconds(sessionTtl)));
+    }
+
+    @Override
+    public void remove(String sessionId) {
+        sessionsRepo.deleteSession(sessionId);
+    }
+
+    @Scheduled(fixedDelayString = "${session.cleanup.delay}")
+    public void deleteExpired() {
+        sessionsRepo.deleteExpired(LocalDateTime.now());
+    }
+}
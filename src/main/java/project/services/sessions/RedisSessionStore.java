@@ -0,0 +1,47 @@
+package project.services.sessions;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Сессии в Redis (или совместимом по протоколу хранилище) с истечением по TTL ключа
+ */
+@Service
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "session.store", havingValue = "redis")
+public class RedisSessionStore implements SessionStore {
+
+    private static final String KEY_PREFIX = "blog:session:";
+
+    private final StringRedisTemplate redisTemplate;
+
+    @Value("${session.ttl}")
+    private Long sessionTtl;
+
+    @Override
+    public Integer getUserId(String sessionId) {
+        String key = KEY_PREFIX + sessionId;
+        String userId = redisTemplate.opsForValue().get(key);
+        if (userId == null) {
+            return null;
+        }
+
+        redisTemplate.expire(key, sessionTtl, TimeUnit.SECONDS);
+        return Integer.valueOf(userId);
+    }
+
+    @Override
+    public void save(String sessionId, Integer userId) {
+        redisTemplate.opsForValue().set(KEY_PREFIX + sessionId, userId.toString(), sessionTtl, TimeUnit.SECONDS);
+    }
+
+    @Override
+    public void remove(String sessionId) {
+        redisTemplate.delete(KEY_PREFIX + sessionId);
+    }
+}
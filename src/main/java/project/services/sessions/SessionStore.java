@@ -0,0 +1,17 @@
+package project.services.sessions;
+
+/**
+ * Хранилище авторизованных сессий: id сессии -> id пользователя.
+ * Реализация выбирается свойством session.store (memory, jdbc, redis)
+ */
+public interface SessionStore {
+
+    /**
+     * id пользователя или null, если сессия не найдена или истекла
+     */
+    Integer getUserId(String sessionId);
+
+    void save(String sessionId, Integer userId);
+
+    void remove(String sessionId);
+}
@@ -0,0 +1,20 @@
+package project.services.settings;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+/**
+ * Единственный экземпляр приложения: оповещать некого
+ */
+@Service
+@ConditionalOnProperty(name = "settings.invalidation", havingValue = "local", matchIfMissing = true)
+public class LocalSettingsInvalidationChannel implements SettingsInvalidationChannel {
+
+    @Override
+    public void publish() {
+    }
+
+    @Override
+    public void subscribe(Runnable listener) {
+    }
+}
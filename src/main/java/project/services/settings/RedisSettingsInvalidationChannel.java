@@ -0,0 +1,60 @@
+package project.services.settings;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+
+/**
+ * Оповещение через Redis pub/sub. Сообщение содержит id экземпляра, чтобы не обрабатывать собственные изменения
+ */
+@Service
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "settings.invalidation", havingValue = "redis")
+public class RedisSettingsInvalidationChannel implements SettingsInvalidationChannel {
+
+    private static final ChannelTopic TOPIC = new ChannelTopic("blog:settings");
+
+    private final String nodeId = UUID.randomUUID().toString();
+
+    private final StringRedisTemplate redisTemplate;
+
+    private final RedisConnectionFactory connectionFactory;
+
+    private RedisMessageListenerContainer container;
+
+    @PostConstruct
+    public void init() {
+        container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(connectionFactory);
+        container.afterPropertiesSet();
+        container.start();
+    }
+
+    @PreDestroy
+    public void close() throws Exception {
+        container.destroy();
+    }
+
+    @Override
+    public void publish() {
+        redisTemplate.convertAndSend(TOPIC.getTopic(), nodeId);
+    }
+
+    @Override
+    public void subscribe(Runnable listener) {
+        container.addMessageListener((message, pattern) -> {
+            if (!nodeId.equals(new String(message.getBody(), StandardCharsets.UTF_8))) {
+                listener.run();
+            }
+        }, TOPIC);
+    }
+}
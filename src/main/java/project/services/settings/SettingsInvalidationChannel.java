@@ -0,0 +1,18 @@
+package project.services.settings;
+
+/**
+ * Канал оповещения других экземпляров приложения об изменении глобальных настроек.
+ * Реализация выбирается свойством settings.invalidation (local, redis)
+ */
+public interface SettingsInvalidationChannel {
+
+    /**
+     * Сообщает остальным экземплярам, что настройки изменились
+     */
+    void publish();
+
+    /**
+     * listener вызывается, когда настройки изменил другой экземпляр
+     */
+    void subscribe(Runnable listener);
+}
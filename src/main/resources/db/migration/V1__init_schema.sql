@@ -0,0 +1,78 @@
+-- Исходная схема в том виде, в котором её создавал Hibernate (ddl-auto=update) до перехода на Flyway.
+-- Существующие базы помечаются этой версией через spring.flyway.baseline-on-migrate,
+-- все последующие изменения схемы - в версионированных миграциях
+
+CREATE TABLE users (
+    id           INTEGER      NOT NULL AUTO_INCREMENT,
+    is_moderator TINYINT      NOT NULL,
+    reg_time     DATETIME     NOT NULL,
+    name         VARCHAR(255) NOT NULL,
+    email        VARCHAR(255) NOT NULL,
+    password     VARCHAR(255) NOT NULL,
+    code         VARCHAR(255),
+    photo        VARCHAR(255),
+    PRIMARY KEY (id)
+) ENGINE = InnoDB;
+
+CREATE TABLE posts (
+    id                INTEGER        NOT NULL AUTO_INCREMENT,
+    is_active         TINYINT        NOT NULL,
+    moderation_status VARCHAR(255)   NOT NULL,
+    moderator_id      INTEGER,
+    user_id           INTEGER        NOT NULL,
+    time              DATETIME       NOT NULL,
+    title             VARCHAR(255)   NOT NULL,
+    text              VARCHAR(30000) NOT NULL,
+    view_count        INTEGER        NOT NULL,
+    PRIMARY KEY (id),
+    CONSTRAINT fk_posts_moderator FOREIGN KEY (moderator_id) REFERENCES users (id),
+    CONSTRAINT fk_posts_user FOREIGN KEY (user_id) REFERENCES users (id)
+) ENGINE = InnoDB;
+
+CREATE TABLE post_votes (
+    id      INTEGER  NOT NULL AUTO_INCREMENT,
+    user_id INTEGER  NOT NULL,
+    post_id INTEGER  NOT NULL,
+    time    DATETIME NOT NULL,
+    value   INTEGER  NOT NULL,
+    PRIMARY KEY (id)
+) ENGINE = InnoDB;
+
+CREATE TABLE post_comments (
+    id        INTEGER      NOT NULL AUTO_INCREMENT,
+    parent_id INTEGER,
+    post_id   INTEGER      NOT NULL,
+    user_id   INTEGER      NOT NULL,
+    time      DATETIME     NOT NULL,
+    text      VARCHAR(255) NOT NULL,
+    PRIMARY KEY (id)
+) ENGINE = InnoDB;
+
+CREATE TABLE tags (
+    id   INTEGER      NOT NULL AUTO_INCREMENT,
+    name VARCHAR(255) NOT NULL,
+    PRIMARY KEY (id)
+) ENGINE = InnoDB;
+
+CREATE TABLE post2tag (
+    id      INTEGER NOT NULL AUTO_INCREMENT,
+    post_id INTEGER,
+    tag_id  INTEGER,
+    PRIMARY KEY (id)
+) ENGINE = InnoDB;
+
+CREATE TABLE global_settings (
+    id    INTEGER      NOT NULL AUTO_INCREMENT,
+    code  VARCHAR(255) NOT NULL,
+    name  VARCHAR(255) NOT NULL,
+    value VARCHAR(255) NOT NULL,
+    PRIMARY KEY (id)
+) ENGINE = InnoDB;
+
+CREATE TABLE captcha_codes (
+    id          INTEGER      NOT NULL AUTO_INCREMENT,
+    time        DATETIME     NOT NULL,
+    code        VARCHAR(255) NOT NULL,
+    secret_code VARCHAR(255) NOT NULL,
+    PRIMARY KEY (id)
+) ENGINE = InnoDB;
@@ -0,0 +1,19 @@
+-- счётчики голосов и комментариев на постах: ленты сортируются по ним без подзапросов к post_votes и post_comments.
+-- Заполняются одним проходом по сгруппированным голосам и комментариям
+ALTER TABLE posts
+    ADD COLUMN like_count    INT DEFAULT 0 NOT NULL,
+    ADD COLUMN dislike_count INT DEFAULT 0 NOT NULL,
+    ADD COLUMN comment_count INT DEFAULT 0 NOT NULL;
+
+UPDATE posts p
+    JOIN (SELECT post_id, SUM(value = 1) AS likes, SUM(value = -1) AS dislikes
+          FROM post_votes
+          GROUP BY post_id) v ON v.post_id = p.id
+SET p.like_count = v.likes,
+    p.dislike_count = v.dislikes;
+
+UPDATE posts p
+    JOIN (SELECT post_id, count(*) AS comments
+          FROM post_comments
+          GROUP BY post_id) c ON c.post_id = p.id
+SET p.comment_count = c.comments;
@@ -0,0 +1,7 @@
+-- авторизованные сессии для session.store=jdbc
+CREATE TABLE sessions (
+    session_id VARCHAR(64) NOT NULL,
+    user_id    INTEGER     NOT NULL,
+    expires_at DATETIME    NOT NULL,
+    PRIMARY KEY (session_id)
+) ENGINE = InnoDB;
@@ -0,0 +1,12 @@
+-- исходящие письма, которые отправляет MailOutboxWorker
+CREATE TABLE mail_outbox (
+    id              INTEGER       NOT NULL AUTO_INCREMENT,
+    mail_to         VARCHAR(255)  NOT NULL,
+    subject         VARCHAR(255)  NOT NULL,
+    text            TEXT          NOT NULL,
+    attempts        INTEGER       NOT NULL,
+    next_attempt_at DATETIME      NOT NULL,
+    failed          TINYINT       NOT NULL,
+    last_error      VARCHAR(1000),
+    PRIMARY KEY (id)
+) ENGINE = InnoDB;
@@ -0,0 +1,8 @@
+-- загруженные изображения по хэшу содержимого со счётчиком ссылок
+CREATE TABLE image_blobs (
+    hash        VARCHAR(64) NOT NULL,
+    type        VARCHAR(10) NOT NULL,
+    ref_count   INTEGER     NOT NULL,
+    released_at DATETIME,
+    PRIMARY KEY (hash)
+) ENGINE = InnoDB;
@@ -0,0 +1,2 @@
+-- капчи хранятся в CaptchaStore (память или Redis)
+DROP TABLE captcha_codes;
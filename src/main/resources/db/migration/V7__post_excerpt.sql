@@ -0,0 +1,2 @@
+-- текстовый анонс поста; у существующих постов заполняется при старте (PostService.fillMissingExcerpts)
+ALTER TABLE posts ADD COLUMN excerpt VARCHAR(1000);
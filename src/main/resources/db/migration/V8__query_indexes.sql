@@ -0,0 +1,55 @@
+-- Индексы под запросы PostsRepo, PostsCommentsRepo, Post2TagRepo, TagsRepo, голосования (PostVoteService) и фоновых задач.
+-- Перед уникальными ключами удаляются дубли, накопленные без них
+
+-- дубли голосов: остаётся последний голос пользователя за пост
+DELETE v FROM post_votes v
+    JOIN post_votes newer ON newer.post_id = v.post_id AND newer.user_id = v.user_id AND newer.id > v.id;
+
+-- дубли тегов: связи переносятся на тег с минимальным id
+UPDATE post2tag p2t
+    JOIN tags t ON t.id = p2t.tag_id
+    JOIN (SELECT name, MIN(id) AS id FROM tags GROUP BY name) kept ON kept.name = t.name
+SET p2t.tag_id = kept.id
+WHERE t.id <> kept.id;
+
+DELETE t FROM tags t
+    JOIN tags older ON older.name = t.name AND older.id < t.id;
+
+DELETE p2t FROM post2tag p2t
+    JOIN post2tag older ON older.post_id = p2t.post_id AND older.tag_id = p2t.tag_id AND older.id < p2t.id;
+
+-- счётчики после удаления дублей голосов (у каждого затронутого поста остаётся хотя бы один голос)
+UPDATE posts p
+    JOIN (SELECT post_id, SUM(value = 1) AS likes, SUM(value = -1) AS dislikes
+          FROM post_votes
+          GROUP BY post_id) v ON v.post_id = p.id
+SET p.like_count = v.likes,
+    p.dislike_count = v.dislikes;
+
+ALTER TABLE tags ADD CONSTRAINT uk_tags_name UNIQUE (name);
+ALTER TABLE post2tag ADD CONSTRAINT uk_post2tag_post_tag UNIQUE (post_id, tag_id);
+
+-- ленты: опубликованные посты по времени, числу комментариев и лайков
+CREATE INDEX idx_posts_published_time ON posts (is_active, moderation_status, time, id);
+CREATE INDEX idx_posts_published_comments ON posts (is_active, moderation_status, comment_count, id);
+CREATE INDEX idx_posts_published_likes ON posts (is_active, moderation_status, like_count, id);
+
+-- "мои посты" и модерация
+CREATE INDEX idx_posts_author ON posts (user_id, is_active, moderation_status);
+CREATE INDEX idx_posts_moderation ON posts (moderation_status, is_active, moderator_id);
+
+-- голос пользователя за пост и пересчёт счётчиков
+ALTER TABLE post_votes ADD CONSTRAINT uk_post_votes_post_user UNIQUE (post_id, user_id);
+CREATE INDEX idx_post_votes_post_value ON post_votes (post_id, value);
+
+CREATE INDEX idx_post_comments_post ON post_comments (post_id);
+
+-- посты по тегу
+CREATE INDEX idx_post2tag_tag_post ON post2tag (tag_id, post_id);
+
+CREATE INDEX idx_users_email ON users (email);
+CREATE INDEX idx_users_code ON users (code);
+
+CREATE INDEX idx_sessions_expires_at ON sessions (expires_at);
+CREATE INDEX idx_mail_outbox_pending ON mail_outbox (failed, next_attempt_at);
+CREATE INDEX idx_image_blobs_released ON image_blobs (ref_count, released_at);
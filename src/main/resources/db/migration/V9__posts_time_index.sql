@@ -0,0 +1,2 @@
+-- границы и проверка годов календаря (min/max/exists по диапазону time) без фильтра по статусу
+CREATE INDEX idx_posts_time ON posts (time);
@@ -0,0 +1,238 @@
+package project.repositories;
+
+import org.flywaydb.core.Flyway;
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.testcontainers.containers.MySQLContainer;
+import project.models.enums.ModerationStatusesEnum;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+/**
+ * Миграции Flyway с нуля на MySQL и планы (EXPLAIN) горячих запросов: каждый должен идти по своему индексу.
+ * Проверяется SQL, который репозитории действительно отправляют в базу: он снимается из general_log MySQL
+ * вместе с подставленными значениями параметров
+ */
+@RunWith(SpringRunner.class)
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+public class QueryIndexesTest {
+
+    private static final int USERS = 200;
+
+    private static final int POSTS = 3000;
+
+    private static final int TAGS = 50;
+
+    @ClassRule
+    public static final MySQLContainer<?> MYSQL = new MySQLContainer<>("mysql:5.7");
+
+    private static JdbcTemplate jdbcTemplate;
+
+    /**
+     * Соединение root: general_log включается только глобально
+     */
+    private static JdbcTemplate rootJdbcTemplate;
+
+    @Autowired
+    private PostsRepo postsRepo;
+
+    @Autowired
+    private UsersRepo usersRepo;
+
+    @DynamicPropertySource
+    static void datasource(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", MYSQL::getJdbcUrl);
+        registry.add("spring.datasource.username", MYSQL::getUsername);
+        registry.add("spring.datasource.password", MYSQL::getPassword);
+        registry.add("spring.flyway.enabled", () -> "false");
+    }
+
+    @BeforeClass
+    public static void migrate() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                MYSQL.getJdbcUrl(), MYSQL.getUsername(), MYSQL.getPassword()
+        );
+        Flyway.configure().dataSource(dataSource).load().migrate();
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        rootJdbcTemplate = new JdbcTemplate(new DriverManagerDataSource(MYSQL.getJdbcUrl(), "root", MYSQL.getPassword()));
+        rootJdbcTemplate.execute("SET GLOBAL log_output = 'TABLE'");
+        fill();
+    }
+
+    @Test
+    public void publishedFeedByTimeUsesPublishedTimeIndex() {
+        String sql = captureSql(() -> postsRepo.findAllPublishedBeforeTimeCursor(
+                now(), ModerationStatusesEnum.ACCEPTED, now().minusDays(10), POSTS, PageRequest.of(0, 10)
+        ));
+        assertPlan(sql, "posts", "idx_posts_published_time");
+    }
+
+    @Test
+    public void publishedFeedByCommentsUsesPublishedCommentsIndex() {
+        String sql = captureSql(() -> postsRepo.findAllPublishedBeforeCommentCountCursor(
+                now(), ModerationStatusesEnum.ACCEPTED, 10, POSTS, PageRequest.of(0, 10)
+        ));
+        assertPlan(sql, "posts", "idx_posts_published_comments");
+    }
+
+    @Test
+    public void publishedFeedByLikesUsesPublishedLikesIndex() {
+        String sql = captureSql(() -> postsRepo.findAllPublishedBeforeLikeCountCursor(
+                now(), ModerationStatusesEnum.ACCEPTED, 10, POSTS, PageRequest.of(0, 10)
+        ));
+        assertPlan(sql, "posts", "idx_posts_published_likes");
+    }
+
+    @Test
+    public void authorPostsUseAuthorIndex() {
+        String sql = captureSql(() -> postsRepo.findAllByModerationStatusAndIsActiveAndAuthorId(
+                ModerationStatusesEnum.NEW, (byte) 1, 7, OffsetPageRequest.of(0, 10)
+        ));
+        assertPlan(sql, "posts", "idx_posts_author");
+    }
+
+    @Test
+    public void calendarYearCheckUsesTimeIndex() {
+        String sql = captureSql(() -> postsRepo.existsByTimeGreaterThanEqualAndTimeLessThan(
+                now().minusDays(30), now().minusDays(20)
+        ));
+        assertPlan(sql, "posts", "idx_posts_time");
+    }
+
+    @Test
+    public void postsByTagUseTagIndexes() {
+        String sql = captureSql(() -> postsRepo.findAllByTag("tag7", PageRequest.of(0, 10)));
+        assertPlan(sql, "tags", "uk_tags_name");
+        assertPlan(sql, "post2tag", "idx_post2tag_tag_post");
+    }
+
+    @Test
+    public void userByEmailUsesEmailIndex() {
+        String sql = captureSql(() -> usersRepo.findByEmail("user7@mail.test"));
+        assertPlan(sql, "users", "idx_users_email");
+    }
+
+    /**
+     * Голосование (PostVoteService) - это INSERT ... ON DUPLICATE KEY UPDATE, плана чтения у него нет:
+     * проверяется уникальный ключ, на который он опирается
+     */
+    @Test
+    public void voteUpsertHasPostUserUniqueKey() {
+        List<Map<String, Object>> index = jdbcTemplate.queryForList(
+                "SHOW INDEX FROM post_votes WHERE Key_name = 'uk_post_votes_post_user'"
+        );
+        assertEquals(index.toString(), 2, index.size());
+        assertEquals("post_id", index.get(0).get("Column_name"));
+        assertEquals("user_id", index.get(1).get("Column_name"));
+        assertEquals(0L, ((Number) index.get(0).get("Non_unique")).longValue());
+    }
+
+    /**
+     * Единственный SELECT, отправленный в базу вызовом repositoryCall, с подставленными параметрами
+     */
+    private String captureSql(Runnable repositoryCall) {
+        rootJdbcTemplate.execute("TRUNCATE TABLE mysql.general_log");
+        rootJdbcTemplate.execute("SET GLOBAL general_log = 'ON'");
+        try {
+            repositoryCall.run();
+        } finally {
+            rootJdbcTemplate.execute("SET GLOBAL general_log = 'OFF'");
+        }
+
+        List<String> selects = rootJdbcTemplate.queryForList(
+                "SELECT CONVERT(argument USING utf8mb4) FROM mysql.general_log " +
+                "WHERE command_type = 'Query' AND argument LIKE 'select % from %' " +
+                "ORDER BY event_time",
+                String.class
+        );
+        assertEquals(selects.toString(), 1, selects.size());
+        return selects.get(0);
+    }
+
+    /**
+     * План строки таблицы table (по её псевдониму в сгенерированном SQL) должен использовать index
+     */
+    private void assertPlan(String sql, String table, String index) {
+        Matcher alias = Pattern.compile("(?i)\\b(?:from|join) " + table + " (\\w+)").matcher(sql);
+        if (!alias.find()) {
+            throw new AssertionError("No " + table + " in " + sql);
+        }
+
+        List<Map<String, Object>> plan = jdbcTemplate.queryForList("EXPLAIN " + sql);
+        Map<String, Object> row = plan.stream()
+                .filter(r -> alias.group(1).equals(r.get("table")))
+                .findFirst()
+                .orElseThrow(() -> new AssertionError("No plan row for " + table + ": " + plan));
+
+        assertEquals(sql + "\n" + plan, index, row.get("key"));
+        assertFalse(sql + "\n" + plan, "ALL".equals(row.get("type")));
+    }
+
+    private static LocalDateTime now() {
+        return LocalDateTime.now().withNano(0);
+    }
+
+    /**
+     * Данных должно быть достаточно, чтобы оптимизатор предпочёл индекс полному просмотру
+     */
+    private static void fill() {
+        LocalDateTime now = now();
+
+        List<Object[]> users = new ArrayList<>();
+        for (int i = 1; i <= USERS; i++) {
+            users.add(new Object[]{Timestamp.valueOf(now), "user" + i, "user" + i + "@mail.test"});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO users (is_moderator, reg_time, name, email, password) " +
+                "VALUES (0, ?, ?, ?, 'password')", users);
+
+        List<Object[]> posts = new ArrayList<>();
+        for (int i = 1; i <= POSTS; i++) {
+            String status = i % 3 == 0 ? "NEW" : i % 3 == 1 ? "ACCEPTED" : "DECLINED";
+            posts.add(new Object[]{
+                    i % 5 == 0 ? 0 : 1, status, i % USERS + 1, Timestamp.valueOf(now.minusHours(i)),
+                    "title" + i, i % 17, i % 13
+            });
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO posts (is_active, moderation_status, user_id, time, title, text, " +
+                "view_count, like_count, comment_count) VALUES (?, ?, ?, ?, ?, 'text', 0, ?, ?)", posts);
+
+        List<Object[]> tags = new ArrayList<>();
+        for (int i = 1; i <= TAGS; i++) {
+            tags.add(new Object[]{"tag" + i});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO tags (name) VALUES (?)", tags);
+
+        List<Object[]> postTags = new ArrayList<>();
+        List<Object[]> votes = new ArrayList<>();
+        for (int i = 1; i <= POSTS; i++) {
+            postTags.add(new Object[]{i, i % TAGS + 1});
+            postTags.add(new Object[]{i, (i + 7) % TAGS + 1});
+            votes.add(new Object[]{i % USERS + 1, i, Timestamp.valueOf(now), i % 2 == 0 ? 1 : -1});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO post2tag (post_id, tag_id) VALUES (?, ?)", postTags);
+        jdbcTemplate.batchUpdate("INSERT INTO post_votes (user_id, post_id, time, value) VALUES (?, ?, ?, ?)", votes);
+
+        jdbcTemplate.execute("ANALYZE TABLE users, posts, tags, post2tag, post_votes");
+    }
+}
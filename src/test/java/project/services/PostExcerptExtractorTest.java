@@ -0,0 +1,83 @@
+package project.services;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Разбор видимого текста PostExcerptExtractor: теги, сущности, пробелы и обрезка анонса
+ */
+public class PostExcerptExtractorTest {
+
+    private PostExcerptExtractor extractor;
+
+    @Before
+    public void createExtractor() {
+        extractor = new PostExcerptExtractor();
+        ReflectionTestUtils.setField(extractor, "announceLength", 10);
+    }
+
+    @Test
+    public void textShorterThanLimitIsReturnedWhole() {
+        assertEquals("Hi there", extractor.extract("<p>Hi <b>there</b></p>"));
+    }
+
+    @Test
+    public void textIsCutAtLimit() {
+        assertEquals("0123456789", extractor.extract("<p>0123456789abc</p>"));
+        assertEquals("0123456789abc", extractor.extractText("<p>0123456789abc</p>"));
+    }
+
+    @Test
+    public void nullHtmlGivesEmptyText() {
+        assertEquals("", extractor.extract(null));
+    }
+
+    @Test
+    public void unterminatedTagSwallowsRest() {
+        assertEquals("text", extractor.extract("text<img src=\"a.png\""));
+        assertEquals("a", extractor.extract("a<p class='x>b"));
+    }
+
+    @Test
+    public void quotedGreaterThanInAttributeDoesNotCloseTag() {
+        assertEquals("ok", extractor.extract("<a title=\"a > b\" data-x='>'>ok</a>"));
+    }
+
+    @Test
+    public void namedEntitiesAreDecoded() {
+        assertEquals("a&b <c> \"d\" 'e'", extractor.extractText("a&amp;b &lt;c&gt; &quot;d&quot; &apos;e&apos;"));
+    }
+
+    @Test
+    public void numericEntitiesAreDecoded() {
+        assertEquals("ABé", extractor.extract("&#65;&#x42;&#XE9;"));
+    }
+
+    @Test
+    public void entitiesAboveBmpAreDecodedWhole() {
+        assertEquals("😀!", extractor.extract("&#x1F600;!"));
+        assertEquals("😀", extractor.extract("&#128512;"));
+    }
+
+    @Test
+    public void unknownOrInvalidEntitiesStayAsText() {
+        assertEquals("&foo; &#xD800;", extractor.extractText("&foo; &#xD800;"));
+        assertEquals("&#x110000;", extractor.extractText("&#x110000;"));
+        assertEquals("a & b", extractor.extractText("a & b"));
+    }
+
+    @Test
+    public void surrogatePairIsNotSplitAtLimit() {
+        assertEquals("012345678", extractor.extract("012345678😀"));
+        assertEquals("01234567😀", extractor.extract("01234567😀x"));
+    }
+
+    @Test
+    public void whitespaceIsCollapsed() {
+        assertEquals("a b c d", extractor.extractText("  a \n\t b&nbsp;&nbsp;c<br/>d  "));
+        assertEquals("one two", extractor.extractText("<p>one</p><p>two</p>"));
+    }
+}
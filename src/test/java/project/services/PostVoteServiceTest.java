@@ -0,0 +1,145 @@
+package project.services;
+
+import org.flywaydb.core.Flyway;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.testcontainers.containers.MySQLContainer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Голосование одним upsert на MySQL: прежнее значение, которое PostVoteService получает из LAST_INSERT_ID,
+ * должно совпадать с приращениями счётчиков, в том числе при двойном клике из двух потоков
+ */
+public class PostVoteServiceTest {
+
+    private static final int POST_ID = 1;
+
+    @ClassRule
+    public static final MySQLContainer<?> MYSQL = new MySQLContainer<>("mysql:5.7");
+
+    private static JdbcTemplate jdbcTemplate;
+
+    private static final AtomicInteger nextUserId = new AtomicInteger();
+
+    private final AtomicInteger likes = new AtomicInteger();
+
+    private final AtomicInteger dislikes = new AtomicInteger();
+
+    private PostVoteService postVoteService;
+
+    @BeforeClass
+    public static void migrate() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                MYSQL.getJdbcUrl(), MYSQL.getUsername(), MYSQL.getPassword()
+        );
+        Flyway.configure().dataSource(dataSource).load().migrate();
+        jdbcTemplate = new JdbcTemplate(dataSource);
+    }
+
+    @Before
+    public void createService() {
+        PostService postService = mock(PostService.class);
+        doAnswer(invocation -> {
+            likes.addAndGet(invocation.getArgument(1));
+            dislikes.addAndGet(invocation.getArgument(2));
+            return null;
+        }).when(postService).updateVoteCounts(eq(POST_ID), anyInt(), anyInt());
+
+        postVoteService = new PostVoteService(jdbcTemplate, postService, event -> {
+        });
+    }
+
+    @Test
+    public void firstVoteInsertsRow() {
+        int userId = nextUserId.incrementAndGet();
+
+        postVoteService.votePost(POST_ID, userId, 1);
+
+        assertVote(userId, 1);
+        assertCounters(1, 0);
+    }
+
+    @Test
+    public void oppositeVoteSwitchesCounters() {
+        int userId = nextUserId.incrementAndGet();
+
+        postVoteService.votePost(POST_ID, userId, 1);
+        postVoteService.votePost(POST_ID, userId, -1);
+
+        assertVote(userId, -1);
+        assertCounters(0, 1);
+    }
+
+    @Test
+    public void sameVoteTogglesItOff() {
+        int userId = nextUserId.incrementAndGet();
+
+        postVoteService.votePost(POST_ID, userId, -1);
+        postVoteService.votePost(POST_ID, userId, -1);
+        assertVote(userId, 0);
+        assertCounters(0, 0);
+
+        postVoteService.votePost(POST_ID, userId, -1);
+        assertVote(userId, -1);
+        assertCounters(0, 1);
+    }
+
+    /**
+     * Два одинаковых голоса одновременно: один вставляет строку, второй снимает голос
+     */
+    @Test
+    public void concurrentDoubleClickKeepsCountersConsistent() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            List<Integer> userIds = new ArrayList<>();
+            for (int i = 0; i < 20; i++) {
+                int userId = nextUserId.incrementAndGet();
+                userIds.add(userId);
+
+                CyclicBarrier barrier = new CyclicBarrier(2);
+                Callable<Object> click = () -> {
+                    barrier.await();
+                    return postVoteService.votePost(POST_ID, userId, 1);
+                };
+                Future<Object> first = executor.submit(click);
+                Future<Object> second = executor.submit(click);
+                first.get(30, TimeUnit.SECONDS);
+                second.get(30, TimeUnit.SECONDS);
+            }
+
+            for (Integer userId : userIds) {
+                assertVote(userId, 0);
+            }
+            assertCounters(0, 0);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private void assertVote(int userId, int value) {
+        List<Integer> values = jdbcTemplate.queryForList(
+                "SELECT value FROM post_votes WHERE post_id = ? AND user_id = ?", Integer.class, POST_ID, userId
+        );
+        assertEquals(1, values.size());
+        assertEquals(value, values.get(0).intValue());
+    }
+
+    private void assertCounters(int expectedLikes, int expectedDislikes) {
+        assertEquals(expectedLikes, likes.get());
+        assertEquals(expectedDislikes, dislikes.get());
+    }
+}
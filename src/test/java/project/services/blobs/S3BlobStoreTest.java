@@ -0,0 +1,114 @@
+package project.services.blobs;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.StreamUtils;
+import org.testcontainers.containers.GenericContainer;
+import org.testcontainers.containers.wait.strategy.Wait;
+import software.amazon.awssdk.services.s3.S3Client;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.Assert.*;
+
+/**
+ * S3BlobStore против MinIO в контейнере: put, exists, open и delete по ключам вида aa/bb/hash.type
+ */
+public class S3BlobStoreTest {
+
+    private static final String ACCESS_KEY = "minio-access";
+
+    private static final String SECRET_KEY = "minio-secret";
+
+    private static final String BUCKET = "blog-uploads";
+
+    private static final String PUBLIC_URL = "https://cdn.example.com/";
+
+    @ClassRule
+    public static final GenericContainer<?> MINIO = new GenericContainer<>("minio/minio:RELEASE.2020-06-14T18-32-17Z")
+            .withEnv("MINIO_ACCESS_KEY", ACCESS_KEY)
+            .withEnv("MINIO_SECRET_KEY", SECRET_KEY)
+            .withCommand("server", "/data")
+            .withExposedPorts(9000)
+            .waitingFor(Wait.forHttp("/minio/health/live").forPort(9000));
+
+    private static S3BlobStore store;
+
+    @BeforeClass
+    public static void createStore() {
+        store = newStore(PUBLIC_URL);
+        store.init();
+        S3Client s3 = (S3Client) ReflectionTestUtils.getField(store, "s3");
+        s3.createBucket(b -> b.bucket(BUCKET));
+    }
+
+    @AfterClass
+    public static void closeStore() {
+        store.close();
+    }
+
+    @Test
+    public void putThenOpenReturnsContent() throws IOException {
+        String key = "ab/cd/abcd.png";
+        store.put(key, tempFile("image"), "image/png");
+
+        assertTrue(store.exists(key));
+        try (InputStream in = store.open(key)) {
+            assertEquals("image", StreamUtils.copyToString(in, StandardCharsets.UTF_8));
+        }
+    }
+
+    @Test
+    public void deleteRemovesBlob() throws IOException {
+        String key = "ef/01/ef01.jpeg";
+        store.put(key, tempFile("to delete"), "image/jpeg");
+
+        store.delete(key);
+
+        assertFalse(store.exists(key));
+        assertNull(store.open(key));
+    }
+
+    @Test
+    public void missingBlobDoesNotExist() throws IOException {
+        assertFalse(store.exists("00/00/missing.png"));
+        assertNull(store.open("00/00/missing.png"));
+    }
+
+    @Test
+    public void publicUrlPrefixesKey() {
+        assertEquals(PUBLIC_URL + "ab/cd/abcd_thumb.png", store.getPublicUrl("ab/cd/abcd_thumb.png"));
+        assertNull(store.getLocalFile("ab/cd/abcd.png"));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void emptyPublicUrlFailsAtStartup() {
+        newStore("").init();
+    }
+
+    private static S3BlobStore newStore(String publicUrl) {
+        S3BlobStore s3BlobStore = new S3BlobStore();
+        ReflectionTestUtils.setField(s3BlobStore, "endpoint",
+                "http://" + MINIO.getContainerIpAddress() + ":" + MINIO.getMappedPort(9000));
+        ReflectionTestUtils.setField(s3BlobStore, "region", "us-east-1");
+        ReflectionTestUtils.setField(s3BlobStore, "bucket", BUCKET);
+        ReflectionTestUtils.setField(s3BlobStore, "accessKey", ACCESS_KEY);
+        ReflectionTestUtils.setField(s3BlobStore, "secretKey", SECRET_KEY);
+        ReflectionTestUtils.setField(s3BlobStore, "publicUrl", publicUrl);
+        return s3BlobStore;
+    }
+
+    private static Path tempFile(String content) throws IOException {
+        Path file = Files.createTempFile("blob", ".tmp");
+        file.toFile().deleteOnExit();
+        Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+}